@@ -1,66 +1,75 @@
 package com.tk.wightwhale;
 
-import com.tk.wightwhale.actors.BackgroundGameObject;
-import com.tk.wightwhale.actors.GameObject;
-import com.tk.wightwhale.geometry.RectangleInfo;
 import com.tk.wightwhale.graphics.Board;
+import com.tk.wightwhale.graphics.GameCanvas;
+import com.tk.wightwhale.graphics.GameLoop;
 import com.tk.wightwhale.graphics.GraphicsController;
 import com.tk.wightwhale.levels.LevelController;
-import com.tk.wightwhale.utils.XmlHandler;
 
 import java.awt.EventQueue;
 import javax.swing.JFrame;
-import javax.swing.Timer;
 
 /**
  * Main class and Window handler
  */
 public class GameWindow extends JFrame {
 
-    /** Board to display com.tk.wightwhale.graphics **/
+    /** Game session displayed in this window **/
+    private World _world;
+    /** Board to display com.tk.wightwhale.graphics (passive rendering) **/
     private Board _board;
+    /** Canvas to display com.tk.wightwhale.graphics (active rendering) **/
+    private GameCanvas _canvas;
     /** GraphicsController singleton - manages com.tk.wightwhale.graphics loop and settings **/
     private GraphicsController _gController;
     /** LevelController singleton - manages current displayed level **/
     private LevelController _levelController;
-    /** GraphicsController importer **/
-    public XmlHandler<GraphicsController> importer;
+    /** Fixed-timestep simulation loop - steps the game off the event thread **/
+    private GameLoop _gameLoop;
 
     /**
      * Default Constructor
-     * Imports LevelController and GraphicsController if available.
+     * Imports the default World (LevelController, GraphicsController and collisions) if available.
      * Also creates and initializes board
      */
     public GameWindow() {
 
-        /* Import LevelController */
-        _levelController = LevelController.createFromXml("./Files/Levels", 1);
-        LevelController.setActiveController(_levelController);
-
-        /* Import GraphicsController settings */
-        GraphicsController.activeLevel =  _levelController.levels[0];
-        _gController = new GraphicsController(true);
-        _gController.registerActive();
+        /* Import LevelController, GraphicsController settings + collisions as the default world */
+        _world = new World("default", "./Files/Levels", 1, true);
+        _world.makeDefault();
+        _levelController = _world.getLevelController();
+        _gController = _world.getGraphicsController();
 
         /* Initialise display */
-        _board = new Board(importer);
+        if(_gController.isActiveRendering()){
+            _canvas = new GameCanvas(_gController);
+        } else {
+            _board = new Board(_gController);
+        }
         initUI();
     }
 
     private void initUI() {
 
-        add(_board);
+        if(_canvas != null){
+            add(_canvas);
+            setIgnoreRepaint(true);     //the game loop draws every frame itself
+        } else {
+            add(_board);
+        }
         setSize(_gController.getWindowWidth(), _gController.getWindowHeight());
         setTitle(_gController.getWindowTitle());
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
 
-        Timer timer = new Timer(_gController.getStepSize(), e -> {
-            _gController.step();
-            _board.repaint();
-        });
-
-        timer.start();
+        if(_canvas != null){
+            _gameLoop = new GameLoop(_gController, _canvas::renderFrame);
+            _canvas.setGameLoop(_gameLoop);
+        } else {
+            _gameLoop = new GameLoop(_gController, _board::repaintDirty);
+            _board.setGameLoop(_gameLoop);
+        }
+        _gameLoop.start();
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,186 @@
+package com.tk.wightwhale;
+
+import com.tk.wightwhale.graphics.GameLoop;
+import com.tk.wightwhale.graphics.GraphicsController;
+import com.tk.wightwhale.utils.Log;
+
+/**
+ * Runs the engine without a JFrame, Board or event thread, for display-less
+ * servers and for measuring raw step() throughput without paint cost.
+ * Usage: HeadlessRunner [ticksPerSecond] [seconds] [worlds]
+ * A tick rate of 0 steps as fast as possible. With more than one world,
+ * the worlds are ticked together by a WorldScheduler at the given rate.
+ */
+public class HeadlessRunner {
+
+    /** Debug tag **/
+    private static final String TAG = "HeadlessRunner";
+
+    /** Game session being stepped **/
+    private World _world;
+    /** GraphicsController being stepped - no window is created for it **/
+    private GraphicsController _gController;
+    /** Running status for the unthrottled loop **/
+    private volatile boolean running;
+    /** Ticks run by the unthrottled loop **/
+    private volatile long tickCount;
+
+    /**
+     * Imports a World (LevelController, GraphicsController and CollisionController)
+     * from XML, as GameWindow does, without creating any AWT components
+     * @param levelDir directory containing LevelMap XML documents
+     * @param numLevels number of levels to load
+     */
+    public HeadlessRunner(String levelDir, int numLevels){
+        this(new World("headless", levelDir, numLevels, true));
+    }
+
+    /**
+     * Runner for an existing World
+     * @param world World to step
+     */
+    public HeadlessRunner(World world){
+        _world = world;
+        _gController = world.getGraphicsController();
+    }
+
+    /**
+     * Steps the game for the given time, logging ticks per second once a second
+     * @param ticksPerSecond fixed tick rate, or 0 (or less) to step as fast as possible
+     * @param seconds how long to run for
+     * @return average ticks per second over the run
+     */
+    public double run(double ticksPerSecond, int seconds){
+        GameLoop loop = null;
+        Thread thread = null;
+
+        if(ticksPerSecond > 0){
+            loop = new GameLoop(_gController, null);
+            loop.setTickRate(ticksPerSecond);
+            loop.start();
+        } else {
+            running = true;
+            tickCount = 0;
+            thread = new Thread(this::stepUnthrottled, TAG);
+            thread.start();
+        }
+
+        long start = System.nanoTime();
+        long lastTicks = 0;
+        for(int i = 0; i < seconds; i++){
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException _ex){
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long ticks = (loop != null) ? loop.getTickCount() : tickCount;
+            Log.send(Log.type.VALUE, TAG, "Ticks per second: " + (ticks - lastTicks));
+            lastTicks = ticks;
+        }
+
+        if(loop != null){
+            loop.stop();
+        } else {
+            running = false;
+            try {
+                thread.join();
+            } catch (InterruptedException _ex){
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        long total = (loop != null) ? loop.getTickCount() : tickCount;
+        double average = total / ((System.nanoTime() - start) / 1000000000.0);
+        Log.send(Log.type.VALUE, TAG, "Total ticks: " + total + ", average ticks per second: " + average);
+        return average;
+    }
+
+    /**
+     * Steps several independent worlds on a WorldScheduler for the given time,
+     * logging total ticks per second once a second and a per-world report at the end
+     * @param levelDir directory containing LevelMap XML documents
+     * @param numLevels number of levels to load per world
+     * @param worlds number of worlds
+     * @param ticksPerSecond tick rate for each world, must be above 0
+     * @param seconds how long to run for
+     * @return average ticks per second over all worlds
+     */
+    public static double runMany(String levelDir, int numLevels, int worlds, double ticksPerSecond, int seconds){
+        WorldScheduler scheduler = new WorldScheduler();
+        for(int i = 0; i < worlds; i++){
+            scheduler.schedule(new World("headless-" + i, levelDir, numLevels, true), ticksPerSecond);
+        }
+
+        long start = System.nanoTime();
+        long startTicks = scheduler.getTotalTickCount(); //worlds created first have already started
+        long lastTicks = startTicks;
+        for(int i = 0; i < seconds; i++){
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException _ex){
+                Thread.currentThread().interrupt();
+                break;
+            }
+            long ticks = scheduler.getTotalTickCount();
+            Log.send(Log.type.VALUE, TAG, "Ticks per second (all worlds): " + (ticks - lastTicks));
+            lastTicks = ticks;
+        }
+
+        scheduler.logReport();
+        long total = scheduler.getTotalTickCount() - startTicks;
+        scheduler.shutdown();
+        double average = total / ((System.nanoTime() - start) / 1000000000.0);
+        Log.send(Log.type.VALUE, TAG, "Total ticks: " + total + ", average ticks per second: " + average);
+        return average;
+    }
+
+    //Steps with no wait between ticks
+    private void stepUnthrottled(){
+        while(running){
+            _gController.step();
+            tickCount++;
+        }
+    }
+
+    /**
+     * Returns the World being stepped
+     * @return World
+     */
+    public World getWorld(){
+        return _world;
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        double ticksPerSecond = 0;
+        int seconds = 10;
+        int worlds = 1;
+        try {
+            if(args.length > 0){
+                ticksPerSecond = Double.parseDouble(args[0]);
+            }
+            if(args.length > 1){
+                seconds = Integer.parseInt(args[1]);
+            }
+            if(args.length > 2){
+                worlds = Integer.parseInt(args[2]);
+            }
+        } catch (NumberFormatException _ex){
+            Log.send(Log.type.ERROR, TAG, "Usage: HeadlessRunner [ticksPerSecond] [seconds] [worlds]");
+            return;
+        }
+
+        if(worlds > 1){
+            if(ticksPerSecond <= 0){
+                Log.send(Log.type.ERROR, TAG, "A tick rate is required when running more than one world.");
+                return;
+            }
+            runMany("./Files/Levels", 1, worlds, ticksPerSecond, seconds);
+        } else {
+            HeadlessRunner runner = new HeadlessRunner("./Files/Levels", 1);
+            runner.run(ticksPerSecond, seconds);
+        }
+    }
+}
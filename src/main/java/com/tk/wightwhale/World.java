@@ -0,0 +1,117 @@
+package com.tk.wightwhale;
+
+import com.tk.wightwhale.collision.CollisionController;
+import com.tk.wightwhale.graphics.GraphicsController;
+import com.tk.wightwhale.levels.LevelController;
+import com.tk.wightwhale.utils.Log;
+
+/**
+ * A single game session which owns its own level, graphics and
+ * collision controllers, so several games can run side by side in one JVM.
+ * Worlds share no game state, so separate worlds can be stepped on
+ * separate threads. The static active controllers (GraphicsController.GetController(),
+ * LevelController.getActiveController(), CollisionController.getActiveController())
+ * point at the default world.
+ */
+public class World {
+
+    /** Debug tag **/
+    private static final String TAG = "World";
+    /** The world the static active controllers refer to **/
+    private static World defaultWorld = null;
+
+    /** World ID string, used in logs **/
+    private final String id;
+    /** Levels for this world **/
+    private final LevelController levelController;
+    /** Graphics + update loop for this world **/
+    private final GraphicsController graphicsController;
+    /** Collision detection for this world **/
+    private final CollisionController collisionController;
+
+    /**
+     * Constructs a world from the LevelMap XML documents in a directory.
+     * The levels are loaded fresh, so objects are not shared with other worlds.
+     * @param id world ID, used in logs
+     * @param levelDir directory containing LevelMap XML documents
+     * @param numLevels number of levels to load
+     * @param importSettings true to import window settings from Files/GC_Settings.xml
+     */
+    public World(String id, String levelDir, int numLevels, boolean importSettings){
+        this(id, LevelController.loadNewFromXml(levelDir, numLevels), importSettings);
+    }
+
+    /**
+     * Constructs a world around an existing LevelController
+     * @param id world ID, used in logs
+     * @param levelController levels for this world (should not be used by another world)
+     * @param importSettings true to import window settings from Files/GC_Settings.xml
+     */
+    public World(String id, LevelController levelController, boolean importSettings){
+        this.id = id;
+        this.levelController = levelController;
+        graphicsController = new GraphicsController(levelController, importSettings);
+        collisionController = graphicsController.getCollisionController();
+        Log.send(Log.type.INFO, TAG, "World created: " + id);
+    }
+
+    /**
+     * Returns the default world
+     * @return World or null if none has been made default
+     */
+    public static World getDefault(){
+        return defaultWorld;
+    }
+
+    /**
+     * Makes this the default world, pointing all static active
+     * controllers at this world's controllers
+     */
+    public void makeDefault(){
+        defaultWorld = this;
+        LevelController.setActiveController(levelController);
+        GraphicsController.activeLevel = graphicsController.getLevelMap();
+        GraphicsController.activeLevelController = levelController;
+        GraphicsController.activeCollisionController = collisionController;
+        if(GraphicsController.GetController() != graphicsController){
+            graphicsController.registerActive();
+        }
+        collisionController.setActiveController();
+    }
+
+    /**
+     * Moves all sprites in this world 1 step forward
+     */
+    public void step(){
+        graphicsController.step();
+    }
+
+    /**
+     * Moves all sprites in this world forward by a time
+     * @param delta time in miliseconds
+     */
+    public void step(double delta){
+        graphicsController.step(delta);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public LevelController getLevelController() {
+        return levelController;
+    }
+
+    public GraphicsController getGraphicsController() {
+        return graphicsController;
+    }
+
+    public CollisionController getCollisionController() {
+        return collisionController;
+    }
+
+    @Override
+    public String toString(){
+        return "World " + id;
+    }
+}
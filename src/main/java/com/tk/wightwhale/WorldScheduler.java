@@ -0,0 +1,291 @@
+package com.tk.wightwhale;
+
+import com.tk.wightwhale.utils.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ticks many Worlds on a small, bounded pool of threads.
+ * Each world is stepped at its own tick rate. A world never has more than
+ * one step queued or running: a world which falls behind runs a few
+ * catch-up ticks back-to-back, and beyond that skips ticks rather than
+ * building a backlog. Per-world tick lag is tracked for reporting.
+ */
+public class WorldScheduler {
+
+    /** Debug tag **/
+    private static final String TAG = "WorldScheduler";
+    /** Default number of ticks a world may fall behind before ticks are skipped **/
+    public static final int DEFAULT_MAX_BACKLOG = 5;
+
+    /** Thread pool running world steps **/
+    private final ScheduledThreadPoolExecutor executor;
+    /** Scheduled worlds and their tick state **/
+    private final Map<World, WorldTask> tasks;
+    /** Number of ticks a world may fall behind before ticks are skipped **/
+    private volatile int maxBacklog;
+
+    /**
+     * Constructs a scheduler with one thread per available processor
+     */
+    public WorldScheduler(){
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a scheduler with a fixed number of threads
+     * @param threads number of pool threads, at least 1
+     */
+    public WorldScheduler(int threads){
+        executor = new ScheduledThreadPoolExecutor(Math.max(1, threads), new DaemonThreadFactory());
+        executor.setRemoveOnCancelPolicy(true);
+        tasks = new ConcurrentHashMap<>();
+        maxBacklog = DEFAULT_MAX_BACKLOG;
+        Log.send(Log.type.INFO, TAG, "Created with " + executor.getCorePoolSize() + " threads.");
+    }
+
+    /**
+     * Starts stepping a world at the given rate
+     * @param world World to step
+     * @param ticksPerSecond steps per second, must be above 0
+     * @return true if scheduled, false if already scheduled or rate invalid
+     */
+    public boolean schedule(World world, double ticksPerSecond){
+        if(ticksPerSecond <= 0){
+            Log.send(Log.type.ERROR, TAG, "Invalid tick rate " + ticksPerSecond + " for " + world);
+            return false;
+        }
+        WorldTask task = new WorldTask(world, (long)(1000000000.0 / ticksPerSecond));
+        if(tasks.putIfAbsent(world, task) != null){
+            Log.send(Log.type.WARNING, TAG, "Attempted to re-schedule " + world);
+            return false;
+        }
+        task.start();
+        return true;
+    }
+
+    /**
+     * Starts stepping a world at its GraphicsController's step size
+     * @param world World to step
+     * @return true if scheduled
+     */
+    public boolean schedule(World world){
+        return schedule(world, 1000.0 / world.getGraphicsController().getStepSize());
+    }
+
+    /**
+     * Stops stepping a world; a step already running is allowed to finish
+     * @param world World to stop
+     * @return true if the world was scheduled
+     */
+    public boolean unschedule(World world){
+        WorldTask task = tasks.remove(world);
+        if(task != null){
+            task.cancel();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Stops stepping all worlds and shuts the thread pool down
+     */
+    public void shutdown(){
+        for(WorldTask task : tasks.values()){
+            task.cancel();
+        }
+        tasks.clear();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException _ex){
+            Thread.currentThread().interrupt();
+        }
+        Log.send(Log.type.INFO, TAG, "Shut down.");
+    }
+
+    /**
+     * Returns the worlds currently scheduled
+     * @return list of worlds (a copy)
+     */
+    public List<World> getWorlds(){
+        return new ArrayList<>(tasks.keySet());
+    }
+
+    /**
+     * Gives how late the latest step of a world started
+     * @param world scheduled World
+     * @return lag in miliseconds, or -1 if not scheduled
+     */
+    public double getLagMillis(World world){
+        WorldTask task = tasks.get(world);
+        return (task == null) ? -1 : task.lagNanos / 1000000.0;
+    }
+
+    /**
+     * Gives the largest step lag seen for a world
+     * @param world scheduled World
+     * @return lag in miliseconds, or -1 if not scheduled
+     */
+    public double getMaxLagMillis(World world){
+        WorldTask task = tasks.get(world);
+        return (task == null) ? -1 : task.maxLagNanos / 1000000.0;
+    }
+
+    /**
+     * Gives the number of steps run for a world
+     * @param world scheduled World
+     * @return tick count, or -1 if not scheduled
+     */
+    public long getTickCount(World world){
+        WorldTask task = tasks.get(world);
+        return (task == null) ? -1 : task.ticks;
+    }
+
+    /**
+     * Gives the number of ticks skipped for a world because it fell too far behind
+     * @param world scheduled World
+     * @return skipped tick count, or -1 if not scheduled
+     */
+    public long getSkippedTicks(World world){
+        WorldTask task = tasks.get(world);
+        return (task == null) ? -1 : task.skipped;
+    }
+
+    /**
+     * Gives the total number of steps run across all scheduled worlds
+     * @return tick count
+     */
+    public long getTotalTickCount(){
+        long total = 0;
+        for(WorldTask task : tasks.values()){
+            total += task.ticks;
+        }
+        return total;
+    }
+
+    /**
+     * Logs tick count, lag and skipped ticks for each scheduled world
+     */
+    public void logReport(){
+        for(WorldTask task : tasks.values()){
+            Log.send(Log.type.VALUE, TAG, task.world + ": ticks=" + task.ticks
+                    + " lag=" + (task.lagNanos / 1000000.0) + "ms"
+                    + " maxLag=" + (task.maxLagNanos / 1000000.0) + "ms"
+                    + " skipped=" + task.skipped);
+        }
+    }
+
+    /**
+     * Sets the number of ticks a world may fall behind before ticks are skipped
+     * @param maxBacklog number of ticks, at least 1
+     */
+    public void setMaxBacklog(int maxBacklog){
+        this.maxBacklog = Math.max(1, maxBacklog);
+    }
+
+    /**
+     * Steps one world and reschedules itself for its next tick.
+     * Only one run of a task is ever queued, which bounds the pool's queue
+     * to one entry per world.
+     */
+    private class WorldTask implements Runnable {
+        /** World being stepped **/
+        private final World world;
+        /** Time between ticks in nanoseconds **/
+        private final long periodNanos;
+        /** Time the next tick is due **/
+        private long nextTickNanos;
+        /** Pending run of this task **/
+        private ScheduledFuture<?> future;
+        /** Set when unscheduled **/
+        private volatile boolean cancelled;
+        /** How late the latest step started **/
+        private volatile long lagNanos;
+        /** Largest lag seen **/
+        private volatile long maxLagNanos;
+        /** Steps run **/
+        private volatile long ticks;
+        /** Ticks skipped because of backlog **/
+        private volatile long skipped;
+
+        private WorldTask(World world, long periodNanos){
+            this.world = world;
+            this.periodNanos = periodNanos;
+        }
+
+        private synchronized void start(){
+            nextTickNanos = System.nanoTime() + periodNanos;
+            future = executor.schedule(this, periodNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private synchronized void cancel(){
+            cancelled = true;
+            if(future != null){
+                future.cancel(false);
+            }
+        }
+
+        @Override
+        public void run(){
+            if(cancelled){
+                return;
+            }
+
+            long start = System.nanoTime();
+            long lag = Math.max(0, start - nextTickNanos);
+            lagNanos = lag;
+            if(lag > maxLagNanos){
+                maxLagNanos = lag;
+            }
+
+            try {
+                world.step();
+                ticks++;
+            } catch (RuntimeException _ex){
+                Log.send(Log.type.ERROR, TAG, _ex);
+            }
+
+            nextTickNanos += periodNanos;
+            long now = System.nanoTime();
+            long behind = (now - nextTickNanos) / periodNanos;
+            if(behind > maxBacklog){   //too far behind: skip ticks rather than queue them
+                skipped += behind;
+                nextTickNanos += behind * periodNanos;
+            }
+
+            synchronized (this){
+                if(!cancelled){
+                    try {
+                        future = executor.schedule(this, Math.max(0, nextTickNanos - now), TimeUnit.NANOSECONDS);
+                    } catch (RejectedExecutionException _ex){
+                        cancelled = true;   //scheduler shut down
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Names pool threads and makes them daemons, so a scheduler does not keep the JVM alive
+     */
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r){
+            Thread t = new Thread(r, TAG + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
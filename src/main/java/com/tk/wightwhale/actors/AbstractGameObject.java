@@ -1,11 +1,14 @@
 package com.tk.wightwhale.actors;
 
+import com.tk.wightwhale.collision.CollisionGroups;
+
 import java.awt.Rectangle;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlSeeAlso;
+import javax.xml.bind.annotation.XmlTransient;
 
 /**
  * Base class for all displayable objects
@@ -21,6 +24,18 @@ public abstract class AbstractGameObject {
     protected boolean visible;
     @XmlElement
     protected String groupCategory;
+    /** Draw layer - higher layers are drawn over lower ones **/
+    @XmlElement
+    protected int layer = 0;
+    /** Draw order within a layer and kind of object - higher is drawn later **/
+    @XmlElement
+    protected int zIndex = 0;
+    /** Interned id of groupCategory, -1 until first looked up **/
+    @XmlTransient
+    protected int groupId = -1;
+    /** Told when the object changes how it is drawn, or null **/
+    @XmlTransient
+    protected AppearanceListener appearanceListener;
 
     /**
      * Returns ID value
@@ -52,6 +67,69 @@ public abstract class AbstractGameObject {
      */
     public void setVisibility(boolean state) {
         this.visible = state;
+        appearanceChanged();
+    }
+
+    /**
+     * Returns the draw layer
+     * @return layer; higher layers are drawn over lower ones
+     */
+    public int getLayer() {
+        return layer;
+    }
+
+    /**
+     * Sets the draw layer. Within a layer, backgrounds are drawn first, then
+     * static, moving and player controlled items.
+     * @param layer layer number (default 0)
+     */
+    public void setLayer(int layer) {
+        this.layer = layer;
+        appearanceChanged();
+    }
+
+    /**
+     * Returns the draw order within a layer
+     * @return z-index; higher is drawn later
+     */
+    public int getZIndex() {
+        return zIndex;
+    }
+
+    /**
+     * Sets the draw order among objects of the same layer and kind
+     * (ties are drawn in id order)
+     * @param zIndex z-index (default 0)
+     */
+    public void setZIndex(int zIndex) {
+        this.zIndex = zIndex;
+        appearanceChanged();
+    }
+
+    /**
+     * Returns the listener told when the object changes how it is drawn
+     * @return AppearanceListener, or null
+     */
+    public AppearanceListener getAppearanceListener() {
+        return appearanceListener;
+    }
+
+    /**
+     * Sets the listener told when the object's position, image, visibility,
+     * layer or z-index is set. GameSegment listens to its backgrounds and
+     * static items, so cached drawings of them are only redone when they change.
+     * @param appearanceListener AppearanceListener, or null
+     */
+    public void setAppearanceListener(AppearanceListener appearanceListener) {
+        this.appearanceListener = appearanceListener;
+    }
+
+    //Tells the listener, if any, that the object changed how it is drawn
+    protected void appearanceChanged() {
+        AppearanceListener listener = appearanceListener;
+        if(listener != null){
+            listener.appearanceChanged(this);
+        }
     }
 
     /**
@@ -68,6 +146,18 @@ public abstract class AbstractGameObject {
      */
     public void setGroupCategory(String groupCategory) {
         this.groupCategory = groupCategory;
+        this.groupId = -1;
+    }
+
+    /**
+     * Returns the interned id of the group category
+     * @return group id (see CollisionGroups)
+     */
+    public int getGroupId() {
+        if(groupId < 0){
+            groupId = CollisionGroups.idOf(groupCategory);
+        }
+        return groupId;
     }
 
     /**
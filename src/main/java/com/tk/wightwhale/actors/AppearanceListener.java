@@ -0,0 +1,14 @@
+package com.tk.wightwhale.actors;
+
+/**
+ * Told when an object changes how it is drawn: its position, image,
+ * visibility, layer or z-index. Called on the thread making the change.
+ */
+public interface AppearanceListener {
+
+    /**
+     * Called after an object's position, image, visibility, layer or z-index is set
+     * @param obj the object which changed
+     */
+    void appearanceChanged(AbstractGameObject obj);
+}
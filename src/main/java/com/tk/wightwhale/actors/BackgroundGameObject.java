@@ -9,8 +9,6 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import javax.imageio.ImageIO;
-import javax.swing.*;
 import javax.xml.bind.annotation.*;
 
 /**
@@ -82,40 +80,38 @@ public class BackgroundGameObject extends GameObject {
     public boolean loadImageFrom(File file, Boolean matchSpriteSizeToImage){
         boolean loaded = false;
         try {
-            BufferedImage img = ImageIO.read(file);
+            BufferedImage img = ImageUtils.loadImage(file);
             imgFilename = file.getPath();
-            ImageIcon ii = new ImageIcon(img); // is imageIcon even needed here? answer: yes
-            this.image = ii.getImage();
             if(matchSpriteSizeToImage){
                 this.height = img.getHeight();
                 this.width = img.getWidth();
-            } else if(this.height != img.getHeight(null) || this.width != image.getWidth(null)){
-                this.image = scale(img);
+            } else if(this.height != img.getHeight() || this.width != img.getWidth()){
+                scale(img);
+                img = ImageUtils.loadImage(file, width, height);
             }
+            this.image = img;
+            collisionMask = null;   //backgrounds collide by area; built on demand
+            hull = null;
+            appearanceChanged();
             loaded = true;
         } catch (IOException _ex){
             Log.send(Log.type.ERROR, TAG, "Failed to load image from file " + file.getName());
             _ex.printStackTrace();
-        } catch (ClassCastException _ex){
-            Log.send(Log.type.ERROR, TAG, "Scaling image return failed (this should... really not happen. Contact the dev.)");
         }
         return loaded;
     }
 
     /**
-     * Scales image & collisionAreas together
-     * @param img
+     * Scales collisionAreas from the image's own size to the sprite size;
+     * the image itself is loaded at the sprite size (see ImageUtils.loadImage)
+     * @param img image at its own size
      */
-    protected Image scale(Image img){
-        //calculate scale - must come before image scaling;
+    protected void scale(Image img){
         point2d_double scale = ImageUtils.scaleVector(
                 new point2d_int(width, height),
-                new point2d_int(image.getWidth(null), image.getHeight(null))
+                new point2d_int(img.getWidth(null), img.getHeight(null))
         );
 
-        //scale the image
-        this.image = ImageUtils.scale(img, width, height);
-
         //scale the collisions details
         for(RectangleInfo r : collisionDetails){
             r.x =(int)(r.x * scale.x);
@@ -123,8 +119,6 @@ public class BackgroundGameObject extends GameObject {
             r.y = (int)(r.y * scale.y);
             r.height = (int)(r.height * scale.y);
         }
-
-        return this.image;
     }
 
     public void updateCollisionSize(Image img, point2d_double scale){
@@ -1,11 +1,13 @@
 package com.tk.wightwhale.actors;
 
+import com.tk.wightwhale.collision.CollisionShape;
+import com.tk.wightwhale.geometry.ConvexPolygon;
+import com.tk.wightwhale.utils.CollisionMask;
 import com.tk.wightwhale.utils.ImageUtils;
 import com.tk.wightwhale.utils.Log;
+import com.tk.wightwhale.utils.SpriteAtlas;
 import com.tk.wightwhale.utils.point2d;
 
-import javax.imageio.ImageIO;
-import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
@@ -26,6 +28,18 @@ public class GameObject extends AbstractGameObject {
     /** Sprite image **/
     @XmlTransient
     protected Image image;  //sprite
+    /** Opacity mask of the sprite image, for pixel collision **/
+    @XmlTransient
+    protected CollisionMask collisionMask;
+    /** Convex hull of the opaque pixels of the sprite image **/
+    @XmlTransient
+    protected ConvexPolygon hull;
+    /** Region of a SpriteAtlas holding the sprite image, or null **/
+    @XmlTransient
+    protected SpriteAtlas.Region atlasRegion;
+    /** Image atlasRegion was packed from; the region is only used while image is still this **/
+    @XmlTransient
+    protected Image atlasSource;
 
     /** position **/
     @XmlElement
@@ -39,6 +53,9 @@ public class GameObject extends AbstractGameObject {
     /** Sprite image file path **/
     @XmlElement
     protected String imgFilename;
+    /** Shape used for collision; PIXEL is the most precise and the slowest **/
+    @XmlElement
+    protected CollisionShape collisionShape = CollisionShape.HULL;
 
     /* Constructors */
 
@@ -87,6 +104,79 @@ public class GameObject extends AbstractGameObject {
      */
     public void setImage(Image image) {
         this.image = image;
+        this.collisionMask = null;
+        this.hull = null;
+        appearanceChanged();
+    }
+
+    /**
+     * Gets the SpriteAtlas region holding the sprite image
+     * @return Region, or null if the image is not in an atlas or changed since it was packed
+     */
+    public SpriteAtlas.Region getAtlasRegion() {
+        return (image != null && image == atlasSource) ? atlasRegion : null;
+    }
+
+    /**
+     * Sets the SpriteAtlas region holding the current sprite image
+     * @param atlasRegion Region, or null to draw from the image itself
+     */
+    public void setAtlasRegion(SpriteAtlas.Region atlasRegion) {
+        this.atlasRegion = atlasRegion;
+        this.atlasSource = (atlasRegion == null) ? null : image;
+    }
+
+    /**
+     * Draws the sprite image, from its atlas region if it has one
+     * @param g Graphics to draw on
+     * @param x left edge to draw at
+     * @param y top edge to draw at
+     */
+    public void draw(Graphics g, int x, int y) {
+        SpriteAtlas.Region region = getAtlasRegion();
+        if(region != null){
+            region.draw(g, x, y);
+        } else {
+            g.drawImage(image, x, y, null);
+        }
+    }
+
+    /**
+     * Gets the opacity mask of the sprite image, building it if the image changed
+     * @return CollisionMask or null if no image is loaded
+     */
+    public CollisionMask getCollisionMask() {
+        if(collisionMask == null && image != null){
+            collisionMask = CollisionMask.forImage(image);
+        }
+        return collisionMask;
+    }
+
+    /**
+     * Gets the convex hull of the sprite image's opaque pixels, building it if the image changed
+     * @return ConvexPolygon or null if no image is loaded or it is fully transparent
+     */
+    public ConvexPolygon getHull() {
+        if(hull == null && image != null){
+            hull = ConvexPolygon.forMask(getCollisionMask());
+        }
+        return hull;
+    }
+
+    /**
+     * Gets the shape used for collision
+     * @return CollisionShape, HULL if not set
+     */
+    public CollisionShape getCollisionShape() {
+        return (collisionShape == null) ? CollisionShape.HULL : collisionShape;
+    }
+
+    /**
+     * Sets the shape used for collision
+     * @param collisionShape BOUNDS, HULL or PIXEL (opt-in; most precise)
+     */
+    public void setCollisionShape(CollisionShape collisionShape) {
+        this.collisionShape = collisionShape;
     }
 
     /**
@@ -98,22 +188,22 @@ public class GameObject extends AbstractGameObject {
     public boolean loadImageFrom(File file, Boolean matchSpriteSizeToImage){
         boolean loaded = false;
         try {
-            BufferedImage img = ImageIO.read(file);
+            BufferedImage img = ImageUtils.loadImage(file);
             imgFilename = file.getPath();
-            ImageIcon ii = new ImageIcon(img); // is imageIcon even needed here? answer: yes
-            this.image = ii.getImage();
             if(matchSpriteSizeToImage){
                 this.height = img.getHeight();
                 this.width = img.getWidth();
-            } else if(this.height != img.getHeight(null) || this.width != image.getWidth(null)){
-                this.image = ImageUtils.scale(img, height, width);
+            } else if(this.height != img.getHeight() || this.width != img.getWidth()){
+                img = ImageUtils.loadImage(file, width, height);
             }
+            this.image = img;
+            collisionMask = CollisionMask.forImage(this.image);
+            hull = ConvexPolygon.forMask(collisionMask);
+            appearanceChanged();
             loaded = true;
         } catch (IOException _ex){
             Log.send(Log.type.ERROR, TAG, "Failed to load image from file " + file.getName());
             _ex.printStackTrace();
-        } catch (ClassCastException _ex){
-            Log.send(Log.type.ERROR, TAG, "Scaling image return failed (this should... really not happen. Contact the dev.)");
         }
         return loaded;
     }
@@ -135,6 +225,7 @@ public class GameObject extends AbstractGameObject {
 
     public void setxPos(int xPos) {
         position.x = xPos;
+        appearanceChanged();
     }
 
     public int getyPos() {
@@ -143,6 +234,7 @@ public class GameObject extends AbstractGameObject {
 
     public void setyPos(int yPos) {
         position.y = yPos;
+        appearanceChanged();
     }
 
     public int getWidth() {
@@ -174,6 +266,7 @@ public class GameObject extends AbstractGameObject {
      */
     public void unloadImage(){
         image.flush();
+        setAtlasRegion(null);
     }
 
     @Override
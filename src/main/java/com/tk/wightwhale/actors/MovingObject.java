@@ -1,5 +1,9 @@
 package com.tk.wightwhale.actors;
 
+import com.tk.wightwhale.utils.point2d;
+
+import java.awt.Rectangle;
+
 import javax.xml.bind.annotation.*;
 
 /**
@@ -13,6 +17,9 @@ public class MovingObject extends GameObject {
     /** Debug Tag **/
     @XmlTransient
     private static final String TAG = "MovingObject";
+    /** Ticks an object must stay still before it sleeps **/
+    @XmlTransient
+    public static final int SLEEP_DELAY = 10;
     /** X axis movement **/
     @XmlTransient
     protected int dX = 0;
@@ -22,6 +29,30 @@ public class MovingObject extends GameObject {
     /** Movement distance in pixels per refresh **/
     @XmlElement (name = "moveDistance")
     protected int stepSize = 2; //movement distance
+    /** Sub-pixel part of the X position, kept between variable-length steps **/
+    @XmlTransient
+    protected double remainderX = 0;
+    /** Sub-pixel part of the Y position, kept between variable-length steps **/
+    @XmlTransient
+    protected double remainderY = 0;
+    /** X distance actually moved by the latest step **/
+    @XmlTransient
+    protected int lastStepX = 0;
+    /** Y distance actually moved by the latest step **/
+    @XmlTransient
+    protected int lastStepY = 0;
+    /** Position before the latest step, used for render interpolation **/
+    @XmlTransient
+    protected point2d lastPosition = null;
+    /** Consecutive ticks spent still at restX, restY **/
+    @XmlTransient
+    protected int restTicks = 0;
+    /** X position the object is resting at **/
+    @XmlTransient
+    protected int restX = 0;
+    /** Y position the object is resting at **/
+    @XmlTransient
+    protected int restY = 0;
 
     public MovingObject(){
         super();
@@ -33,10 +64,205 @@ public class MovingObject extends GameObject {
      * Updates the current position based on current movement.
      */
     public void step() {
+        storeLastPosition();
+        lastStepX = dX;
+        lastStepY = dY;
         position.x += dX;
         position.y += dY;
     }
 
+    /**
+     * Updates the current position by a fraction (or multiple) of one step.
+     * dX and dY are left untouched as the velocity; the part of the movement
+     * smaller than a pixel is carried over to the next step.
+     * @param scale length of this step relative to a full step (1.0 = step())
+     */
+    public void step(double scale) {
+        storeLastPosition();
+        double moveX = dX * scale + remainderX;
+        double moveY = dY * scale + remainderY;
+        lastStepX = (int) moveX;    //whole pixels, truncated towards zero
+        lastStepY = (int) moveY;
+        remainderX = moveX - lastStepX;
+        remainderY = moveY - lastStepY;
+        position.x += lastStepX;
+        position.y += lastStepY;
+    }
+
+    /**
+     * Undoes the X movement of the latest step, dropping any sub-pixel remainder
+     */
+    public void rewindX() {
+        position.x -= lastStepX;
+        lastStepX = 0;
+        remainderX = 0;
+    }
+
+    /**
+     * Undoes the Y movement of the latest step, dropping any sub-pixel remainder
+     */
+    public void rewindY() {
+        position.y -= lastStepY;
+        lastStepY = 0;
+        remainderY = 0;
+    }
+
+    /**
+     * Shortens the X movement of the latest step (e.g. to stop at a surface).
+     * Only ever shortens: a step already shorter than allowed is left alone.
+     * @param allowed X distance to keep, in the direction of the step
+     */
+    public void clipStepX(int allowed) {
+        if(Math.abs(allowed) < Math.abs(lastStepX)){
+            position.x += allowed - lastStepX;
+            lastStepX = allowed;
+        }
+        remainderX = 0;
+    }
+
+    /**
+     * Shortens the Y movement of the latest step (e.g. to stop at a surface).
+     * Only ever shortens: a step already shorter than allowed is left alone.
+     * @param allowed Y distance to keep, in the direction of the step
+     */
+    public void clipStepY(int allowed) {
+        if(Math.abs(allowed) < Math.abs(lastStepY)){
+            position.y += allowed - lastStepY;
+            lastStepY = allowed;
+        }
+        remainderY = 0;
+    }
+
+    /**
+     * Gets the area covered by the latest step: the union of the
+     * bounds before and after it
+     * @return Rectangle
+     */
+    public Rectangle getSweptBounds() {
+        Rectangle bounds = getBounds();
+        if(lastStepX != 0 || lastStepY != 0){
+            bounds.add(new Rectangle(position.x - lastStepX, position.y - lastStepY, width, height));
+        }
+        return bounds;
+    }
+
+    /**
+     * Gets the bounds before the latest step
+     * @return Rectangle
+     */
+    public Rectangle getPreviousBounds() {
+        return new Rectangle(position.x - lastStepX, position.y - lastStepY, width, height);
+    }
+
+    /**
+     * Gets the X distance moved by the latest step
+     * @return integer distance in pixels
+     */
+    public int getLastStepX() {
+        return lastStepX;
+    }
+
+    /**
+     * Gets the Y distance moved by the latest step
+     * @return integer distance in pixels
+     */
+    public int getLastStepY() {
+        return lastStepY;
+    }
+
+    /**
+     * Gets the X position including the sub-pixel remainder
+     * @return x position in pixels
+     */
+    public double getExactX() {
+        return position.x + remainderX;
+    }
+
+    /**
+     * Gets the Y position including the sub-pixel remainder
+     * @return y position in pixels
+     */
+    public double getExactY() {
+        return position.y + remainderY;
+    }
+
+    /**
+     * Gets the X position to draw at, between the previous and current step
+     * @param alpha fraction of a step elapsed since the latest step (0 to 1)
+     * @return interpolated x position in pixels
+     */
+    public int getRenderX(double alpha) {
+        if(lastPosition == null){
+            return position.x;
+        }
+        return (int)Math.round(lastPosition.x + (position.x - lastPosition.x) * alpha);
+    }
+
+    /**
+     * Gets the Y position to draw at, between the previous and current step
+     * @param alpha fraction of a step elapsed since the latest step (0 to 1)
+     * @return interpolated y position in pixels
+     */
+    public int getRenderY(double alpha) {
+        if(lastPosition == null){
+            return position.y;
+        }
+        return (int)Math.round(lastPosition.y + (position.y - lastPosition.y) * alpha);
+    }
+
+    /**
+     * Drops the stored previous position, so the next frame is drawn
+     * at the current position (use after teleporting the object)
+     */
+    public void resetInterpolation() {
+        lastPosition = null;
+    }
+
+    //Stores the position before a step for interpolation
+    protected void storeLastPosition() {
+        if(lastPosition == null){
+            lastPosition = new point2d(position.x, position.y);
+        } else {
+            lastPosition.x = position.x;
+            lastPosition.y = position.y;
+        }
+    }
+
+    /**
+     * Counts a tick towards sleeping if the object is still and has not been moved
+     * since the last call, otherwise resets the count. Called once per tick after
+     * collisions are resolved.
+     */
+    public void updateRest() {
+        if(dX == 0 && dY == 0 && position.x == restX && position.y == restY){
+            if(restTicks < SLEEP_DELAY){
+                restTicks++;
+            }
+        } else {
+            restTicks = 0;
+            restX = position.x;
+            restY = position.y;
+        }
+    }
+
+    /**
+     * Checks whether the object is asleep: it has been still for SLEEP_DELAY ticks
+     * and has not been given a velocity or moved since. Sleeping objects are
+     * skipped by collision detection until they or a neighbour move.
+     * @return true if asleep
+     */
+    public boolean isAsleep() {
+        return restTicks >= SLEEP_DELAY && dX == 0 && dY == 0
+                && position.x == restX && position.y == restY;
+    }
+
+    /**
+     * Wakes the object, so it is checked for collisions for at least SLEEP_DELAY ticks
+     */
+    public void wake() {
+        restTicks = 0;
+    }
+
     /**
      * Gets the distance moving each step on X axis
      * @return integer
@@ -0,0 +1,69 @@
+package com.tk.wightwhale.collision;
+
+import com.tk.wightwhale.actors.GameObject;
+import com.tk.wightwhale.actors.MovingObject;
+
+import java.awt.Rectangle;
+import java.util.List;
+
+/**
+ * Broadphase collision index: quickly narrows down which objects might
+ * overlap an area, before exact bounding box and image tests are run.
+ * The implementation is chosen per level with BroadphaseType.
+ */
+public interface Broadphase {
+
+    /**
+     * Removes all objects
+     */
+    void clear();
+
+    /**
+     * Gives the area an object is indexed by: its bounds, or for a MovingObject
+     * the area swept by its latest step, so fast movers are found along their path
+     * @param obj GameObject
+     * @return Rectangle
+     */
+    static Rectangle boundsOf(GameObject obj){
+        return (obj instanceof MovingObject) ? ((MovingObject) obj).getSweptBounds() : obj.getBounds();
+    }
+
+    /**
+     * Adds an object at its current bounds
+     * @param obj GameObject to add
+     */
+    void insert(GameObject obj);
+
+    /**
+     * Removes an object
+     * @param obj GameObject to remove
+     */
+    void remove(GameObject obj);
+
+    /**
+     * Brings a stored object up to date with its current bounds
+     * (inserts it if not stored)
+     * @param obj GameObject which may have moved
+     */
+    void update(GameObject obj);
+
+    /**
+     * Finds stored objects which might overlap the area. Each object is added
+     * once; the result may include objects which do not actually overlap.
+     * @param area  area to look in
+     * @param out   list the objects are added to (not cleared first)
+     */
+    void query(Rectangle area, List<GameObject> out);
+
+    /**
+     * Gives the number of objects stored
+     * @return object count
+     */
+    int size();
+
+    /**
+     * Gives the type of this broadphase
+     * @return BroadphaseType enum
+     */
+    BroadphaseType getType();
+}
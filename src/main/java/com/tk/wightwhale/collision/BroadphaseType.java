@@ -0,0 +1,23 @@
+package com.tk.wightwhale.collision;
+
+/**
+ * Broadphase algorithms which can be selected per level
+ */
+public enum BroadphaseType {
+    SPATIAL_HASH, //uniform grid, good for objects spread over the whole area
+    SWEEP_AND_PRUNE; //sorted along one axis, good for long corridor levels
+
+    /**
+     * Creates a new, empty broadphase of this type
+     * @return Broadphase
+     */
+    public Broadphase create(){
+        switch (this){
+            case SWEEP_AND_PRUNE:
+                return new SweepAndPrune();
+            case SPATIAL_HASH:
+            default:
+                return new SpatialHashGrid();
+        }
+    }
+}
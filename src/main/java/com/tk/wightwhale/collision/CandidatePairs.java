@@ -0,0 +1,216 @@
+package com.tk.wightwhale.collision;
+
+import com.tk.wightwhale.actors.GameObject;
+import com.tk.wightwhale.actors.MovingObject;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Reusable list of object pairs whose bounding boxes overlap, waiting for the
+ * narrowphase (see CollisionShape). The narrowphase writes one result per pair by index,
+ * so it can run on several threads and still be read back in a fixed order.
+ */
+public class CandidatePairs {
+
+    /** Pairs tested per fork-join task **/
+    private static final int LEAF_SIZE = 64;
+
+    /** Mover in each pair **/
+    private MovingObject[] movers;
+    /** Other object in each pair **/
+    private GameObject[] others;
+    /** Resolution order of the mover **/
+    private int[] moverOrders;
+    /** Resolution order of the other object **/
+    private int[] otherOrders;
+    /** Events for mover against other, or null **/
+    private CollisionEvent[][] forward;
+    /** Events for other (a mover) against mover, or null **/
+    private CollisionEvent[][] backward;
+    /** Swept contact for the mover, or null **/
+    private SweptAabb.Hit[] forwardHits;
+    /** Swept contact for the other object, or null **/
+    private SweptAabb.Hit[] backwardHits;
+    /** Narrowphase result of each pair **/
+    private boolean[] hits;
+    /** True for pairs whose result came from the cache **/
+    private boolean[] cached;
+    /** Indexes of the pairs the narrowphase still has to test **/
+    private int[] pending;
+    /** Number of entries in pending **/
+    private int pendingCount;
+    /** Number of pairs in use **/
+    private int size;
+
+    /**
+     * Constructs an empty list
+     */
+    public CandidatePairs(){
+        resize(64);
+        size = 0;
+    }
+
+    /**
+     * Adds a pair
+     * @param mover MovingObject in the pair
+     * @param moverOrder resolution order of mover
+     * @param other other object in the pair
+     * @param otherOrder resolution order of other
+     * @param forwardEvents events applied to mover, or null
+     * @param backwardEvents events applied to other (if a mover), or null
+     * @param forwardHit swept contact for mover, or null
+     * @param backwardHit swept contact for other, or null
+     */
+    public void add(MovingObject mover, int moverOrder, GameObject other, int otherOrder,
+                    CollisionEvent[] forwardEvents, CollisionEvent[] backwardEvents,
+                    SweptAabb.Hit forwardHit, SweptAabb.Hit backwardHit){
+        if(size == movers.length){
+            resize(size * 2);
+        }
+        movers[size] = mover;
+        others[size] = other;
+        moverOrders[size] = moverOrder;
+        otherOrders[size] = otherOrder;
+        forward[size] = forwardEvents;
+        backward[size] = backwardEvents;
+        forwardHits[size] = forwardHit;
+        backwardHits[size] = backwardHit;
+        hits[size] = false;
+        cached[size] = false;
+        size++;
+    }
+
+    /**
+     * Runs the narrowphase on every pair, splitting the work across
+     * a fork-join pool if there are at least threshold pairs to test.
+     * Pairs unchanged since their last test take their result from the cache,
+     * and new results are stored in it.
+     * @param pool pool to run on, or null to always run on this thread
+     * @param threshold minimum number of pairs to run in parallel
+     * @param cache results of earlier ticks, or null for none
+     */
+    public void narrowphase(ForkJoinPool pool, int threshold, NarrowphaseCache cache){
+        pendingCount = 0;
+        for(int i = 0; i < size; i++){
+            int known = (cache == null) ? -1 : cache.lookup(others[i], movers[i]);
+            cached[i] = known >= 0;
+            if(cached[i]){
+                hits[i] = known == 1;
+            } else {
+                pending[pendingCount++] = i;
+            }
+        }
+
+        if(pool != null && pendingCount >= threshold && pool.getParallelism() > 1){
+            pool.invoke(new NarrowphaseTask(0, pendingCount));
+        } else {
+            narrowphase(0, pendingCount);
+        }
+
+        if(cache != null){
+            for(int p = 0; p < pendingCount; p++){
+                int i = pending[p];
+                cache.store(others[i], movers[i], hits[i]);
+            }
+        }
+    }
+
+    //Tests pending pairs from..to-1
+    private void narrowphase(int from, int to){
+        for(int p = from; p < to; p++){
+            int i = pending[p];
+            hits[i] = CollisionShape.collides(others[i], movers[i]);
+        }
+    }
+
+    /**
+     * Adds the contacts of every colliding pair to a buffer, in pair order
+     * @param contacts ContactBuffer to add to
+     */
+    public void addContactsTo(ContactBuffer contacts){
+        for(int i = 0; i < size; i++){
+            if(hits[i]){
+                if(forward[i] != null){
+                    contacts.add(movers[i], moverOrders[i], others[i], otherOrders[i], forward[i], forwardHits[i]);
+                }
+                if(backward[i] != null){
+                    contacts.add((MovingObject) others[i], otherOrders[i], movers[i], moverOrders[i], backward[i],
+                            backwardHits[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives the number of pairs
+     * @return pair count
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Empties the list, dropping references to the objects
+     */
+    public void clear(){
+        Arrays.fill(movers, 0, size, null);
+        Arrays.fill(others, 0, size, null);
+        Arrays.fill(forward, 0, size, null);
+        Arrays.fill(backward, 0, size, null);
+        Arrays.fill(forwardHits, 0, size, null);
+        Arrays.fill(backwardHits, 0, size, null);
+        size = 0;
+    }
+
+    private void resize(int capacity){
+        if(movers == null){
+            movers = new MovingObject[capacity];
+            others = new GameObject[capacity];
+            moverOrders = new int[capacity];
+            otherOrders = new int[capacity];
+            forward = new CollisionEvent[capacity][];
+            backward = new CollisionEvent[capacity][];
+            forwardHits = new SweptAabb.Hit[capacity];
+            backwardHits = new SweptAabb.Hit[capacity];
+            hits = new boolean[capacity];
+            cached = new boolean[capacity];
+            pending = new int[capacity];
+        } else {
+            movers = Arrays.copyOf(movers, capacity);
+            others = Arrays.copyOf(others, capacity);
+            moverOrders = Arrays.copyOf(moverOrders, capacity);
+            otherOrders = Arrays.copyOf(otherOrders, capacity);
+            forward = Arrays.copyOf(forward, capacity);
+            backward = Arrays.copyOf(backward, capacity);
+            forwardHits = Arrays.copyOf(forwardHits, capacity);
+            backwardHits = Arrays.copyOf(backwardHits, capacity);
+            hits = Arrays.copyOf(hits, capacity);
+            cached = Arrays.copyOf(cached, capacity);
+            pending = Arrays.copyOf(pending, capacity);
+        }
+    }
+
+    /**
+     * Splits a range of pending pairs in half until it is small enough to test directly
+     */
+    private class NarrowphaseTask extends RecursiveAction {
+        private final int from, to;
+
+        NarrowphaseTask(int from, int to){
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from <= LEAF_SIZE){
+                narrowphase(from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new NarrowphaseTask(from, mid), new NarrowphaseTask(mid, to));
+            }
+        }
+    }
+}
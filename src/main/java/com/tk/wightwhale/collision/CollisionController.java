@@ -2,7 +2,7 @@ package com.tk.wightwhale.collision;
 
 import com.tk.wightwhale.actors.*;
 import com.tk.wightwhale.graphics.GraphicsController;
-import com.tk.wightwhale.utils.ImageUtils;
+import com.tk.wightwhale.levels.GameSegment;
 import com.tk.wightwhale.utils.Log;
 import com.tk.wightwhale.utils.XmlHandler;
 
@@ -10,12 +10,17 @@ import javax.xml.bind.annotation.*;
 import java.awt.*;
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * Singleton class which detects and executes
- * collisions for GameObjects
+ * Detects and executes collisions for GameObjects.
+ * Each GraphicsController has its own CollisionController; the one
+ * belonging to the default world is also the active singleton.
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlRootElement(name = "Collisions")
@@ -24,19 +29,101 @@ public class CollisionController {
     /** Debug tag **/
     @XmlTransient
     public static final String TAG = "CollisionController";
+    /** Default minimum number of candidate pairs for a parallel narrowphase **/
+    @XmlTransient
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 256;
     /** Singleton pointer **/
     @XmlTransient
     private static CollisionController activeController = null;
-    /** Internal reference to the active graphicsController **/
+    /** GraphicsController whose loaded area is checked for collisions **/
     @XmlTransient
-    private static GraphicsController _gController;
+    private GraphicsController _gController;
     /** Stores the borders of the game - this is initialized from _gController**/
     @XmlTransient
-    private static Rectangle borders;
+    private Rectangle borders;
+
+    /** Broadphase index of moving and player controlled items in the loaded area **/
+    @XmlTransient
+    private Broadphase broadphase;
+    /** GameSegment the broadphase was built for **/
+    @XmlTransient
+    private GameSegment indexedArea;
+    /** Number of movers in indexedArea when the broadphase was built **/
+    @XmlTransient
+    private int indexedCount;
+    /** Item set version of indexedArea when the broadphase was built **/
+    @XmlTransient
+    private int indexedVersion;
+    /** Reused list of broadphase query results **/
+    @XmlTransient
+    private ArrayList<GameObject> candidates;
+    /** Moving and player controlled items in the loaded area, sorted by id **/
+    @XmlTransient
+    private ArrayList<MovingObject> movers;
+    /** Baked background areas and static items of the loaded area **/
+    @XmlTransient
+    private StaticCollisionGrid staticGrid;
+    /** Reused list of static grid query results **/
+    @XmlTransient
+    private ArrayList<StaticCollisionGrid.Entry> staticEntries;
+    /** Detection pass each static grid owner last had a contact in, by owner index **/
+    @XmlTransient
+    private int[] ownerStamps;
+    /** Current detection pass, for ownerStamps **/
+    @XmlTransient
+    private int stamp;
+    /** Earliest swept hit with each background this pass, by owner index **/
+    @XmlTransient
+    private SweptAabb.Hit[] ownerHits;
+    /** Owner indexes of the backgrounds touched this pass **/
+    @XmlTransient
+    private int[] touchedOwners;
+    /** Number of entries in touchedOwners **/
+    @XmlTransient
+    private int touchedCount;
+    /** Resolution order of each mover (its position in movers) **/
+    @XmlTransient
+    private Map<GameObject, Integer> order;
+    /** Sleep state of each mover this tick, by position in movers **/
+    @XmlTransient
+    private boolean[] asleep;
+    /** Contacts found by detection, waiting to be resolved **/
+    @XmlTransient
+    private ContactBuffer contacts;
+    /** Overlapping pairs waiting for the narrowphase **/
+    @XmlTransient
+    private CandidatePairs pairs;
+    /** Narrowphase results of earlier ticks **/
+    @XmlTransient
+    private NarrowphaseCache narrowphaseCache;
+    /** Pool the narrowphase runs on when there are enough pairs, null for none **/
+    @XmlTransient
+    private ForkJoinPool narrowphasePool;
+    /** Minimum number of pairs for a parallel narrowphase **/
+    @XmlTransient
+    private int parallelThreshold;
+    /** Pairs overlapping with trigger collisions, for enter and exit events **/
+    @XmlTransient
+    private TriggerTracker triggers;
+    /** Mover checked by step(MovingObject), or null when every mover is checked **/
+    @XmlTransient
+    private MovingObject singleActor;
+    /** Range, nearest and raycast queries on the loaded area, created on first use **/
+    @XmlTransient
+    private SpatialQuery spatialQuery;
 
     /** Stores collisionEvents by triggering group types **/
     @XmlElement
     private Map<String, Map<String, ArrayList<CollisionEvent>>> collisions;
+    /** collisions compiled by group id: rules[movingGroup][otherGroup], null if none **/
+    @XmlTransient
+    private CollisionEvent[][][] rules;
+    /** Bitmask of the other groups each moving group has rules for **/
+    @XmlTransient
+    private long[][] ruleMasks;
+    /** ruleMasks folded to 64 bits (group id modulo 64), for static grid queries **/
+    @XmlTransient
+    private long[] staticMasks;
 
     /**
      * Gets the CollisionController singleton (initializes it if none exists)
@@ -53,18 +140,62 @@ public class CollisionController {
 
     /**
      * Default constructor; automatically fetches graphicsController singleton
+     * and becomes the active CollisionController
      */
     public CollisionController() {
         collisions = new HashMap<>();
+        compileRules();
+        broadphase = new SpatialHashGrid();
+        candidates = new ArrayList<>();
+        movers = new ArrayList<>();
+        staticEntries = new ArrayList<>();
+        ownerStamps = new int[0];
+        ownerHits = new SweptAabb.Hit[0];
+        touchedOwners = new int[0];
+        order = new IdentityHashMap<>();
+        asleep = new boolean[0];
+        contacts = new ContactBuffer();
+        pairs = new CandidatePairs();
+        narrowphaseCache = new NarrowphaseCache();
+        narrowphasePool = ForkJoinPool.commonPool();
+        parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+        triggers = new TriggerTracker();
         useActiveGraphicsController();
         activeController = this;
     }
 
+    /**
+     * Constructor for a specific GraphicsController (e.g. one owned by a World).
+     * This does not change the active CollisionController.
+     * @param gController GraphicsController whose loaded area is checked
+     */
+    public CollisionController(GraphicsController gController) {
+        collisions = new HashMap<>();
+        compileRules();
+        broadphase = new SpatialHashGrid();
+        candidates = new ArrayList<>();
+        movers = new ArrayList<>();
+        staticEntries = new ArrayList<>();
+        ownerStamps = new int[0];
+        ownerHits = new SweptAabb.Hit[0];
+        touchedOwners = new int[0];
+        order = new IdentityHashMap<>();
+        asleep = new boolean[0];
+        contacts = new ContactBuffer();
+        pairs = new CandidatePairs();
+        narrowphaseCache = new NarrowphaseCache();
+        narrowphasePool = ForkJoinPool.commonPool();
+        parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+        triggers = new TriggerTracker();
+        _gController = gController;
+    }
+
     /**
      * Sets graphicsController used to current active singleton
      */
     public void useActiveGraphicsController(){
         _gController = GraphicsController.GetController();
+        borders = null;
         if(_gController == null){
             Log.send(Log.type.WARNING, TAG, "No active graphics controller.");
         } else {
@@ -72,6 +203,14 @@ public class CollisionController {
         }
     }
 
+    /**
+     * Returns the GraphicsController used for collision detection
+     * @return GraphicsController or null if none is set
+     */
+    public GraphicsController getGraphicsController(){
+        return _gController;
+    }
+
     /**
      * Sets this CollisionController as the active singleton
      */
@@ -84,85 +223,481 @@ public class CollisionController {
     }
 
     /**
-     * Calculates collision detection per step for a movingObject
+     * Brings the broadphase up to date with the loaded area. The index is rebuilt
+     * when the area or its mover count changed, otherwise each mover is updated in place.
+     * The static grid is re-baked by the segment if its static content changed.
+     */
+    private void refreshBroadphase(){
+        GameSegment area = _gController.getLoadedArea();
+        staticGrid = area.getStaticGrid();
+        if (ownerStamps.length < staticGrid.getOwners().size()) {
+            ownerStamps = new int[staticGrid.getOwners().size()];
+            ownerHits = new SweptAabb.Hit[ownerStamps.length];
+            touchedOwners = new int[ownerStamps.length];
+        }
+        if(area != indexedArea || countItems(area) != indexedCount || area.getItemsVersion() != indexedVersion){
+            rebuildBroadphase();
+        } else {
+            for (int i = 0; i < movers.size(); i++) {
+                MovingObject obj = movers.get(i);
+                if (!obj.isAsleep()) {
+                    broadphase.update(obj);
+                }
+            }
+        }
+    }
+
+    /**
+     * Clears the broadphase and re-adds every mover in the loaded area; static
+     * geometry is kept in the segment's StaticCollisionGrid instead.
+     * Switches broadphase algorithm if the level asks for a different one.
+     * Movers are ordered by id, so collisions resolve in the same order every run.
+     */
+    public void rebuildBroadphase(){
+        GameSegment area = _gController.getLoadedArea();
+        BroadphaseType type = BroadphaseType.SPATIAL_HASH;
+        if(_gController.getLevelMap() != null && _gController.getLevelMap().getBroadphase() != null){
+            type = _gController.getLevelMap().getBroadphase();
+        }
+        if(broadphase.getType() != type){
+            broadphase = type.create();
+            Log.send(Log.type.INFO, TAG, "Using broadphase " + type);
+        } else {
+            broadphase.clear();
+        }
+
+        movers.clear();
+        movers.addAll(area.getMovingItems().values());
+        movers.addAll(area.getPlayerControlledItems().values());
+        movers.sort(BY_ID);
+        if (area != indexedArea) {
+            narrowphaseCache.clear();
+        }
+
+        order.clear();
+        for (MovingObject obj : movers) {
+            order.put(obj, order.size());
+            broadphase.insert(obj);
+        }
+        indexedArea = area;
+        indexedCount = countItems(area);
+        indexedVersion = area.getItemsVersion();
+    }
+
+    /** Orders objects by id, null ids last **/
+    private static final Comparator<GameObject> BY_ID =
+            Comparator.comparing(GameObject::getId, Comparator.nullsLast(Comparator.<String>naturalOrder()));
+
+    //Number of moving and player controlled items in a segment
+    private static int countItems(GameSegment area){
+        return area.getMovingItems().size() + area.getPlayerControlledItems().size();
+    }
+
+    /**
+     * Returns the broadphase index for the loaded area
+     * @return Broadphase
+     */
+    public Broadphase getBroadphase(){
+        return broadphase;
+    }
+
+    /**
+     * Makes sure the broadphase indexes the loaded area, so it can be queried between steps
+     * @return false if there is no loaded area to index
+     */
+    boolean indexLoadedArea(){
+        if (_gController == null || _gController.getLoadedArea() == null) {
+            return false;
+        }
+        GameSegment area = _gController.getLoadedArea();
+        if (area != indexedArea || countItems(area) != indexedCount || area.getItemsVersion() != indexedVersion) {
+            rebuildBroadphase();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the static collision grid of the loaded area
+     * @return StaticCollisionGrid
+     */
+    StaticCollisionGrid getStaticGrid(){
+        return _gController.getLoadedArea().getStaticGrid();
+    }
+
+    /**
+     * Returns the movers indexed by the broadphase, sorted by id
+     * @return list of MovingObjects (do not modify)
+     */
+    List<MovingObject> getMovers(){
+        return movers;
+    }
+
+    /**
+     * Returns the spatial query service for the loaded area
+     * @return SpatialQuery
+     */
+    public SpatialQuery getSpatialQuery(){
+        if (spatialQuery == null) {
+            spatialQuery = new SpatialQuery(this);
+        }
+        return spatialQuery;
+    }
+
+    /**
+     * Returns the cache of narrowphase results
+     * @return NarrowphaseCache
+     */
+    public NarrowphaseCache getNarrowphaseCache(){
+        return narrowphaseCache;
+    }
+
+    /**
+     * Adds a listener for trigger enter and exit events
+     * @param listener TriggerListener
+     */
+    public void addTriggerListener(TriggerListener listener){
+        triggers.addListener(listener);
+    }
+
+    /**
+     * Removes a trigger listener
+     * @param listener TriggerListener
+     */
+    public void removeTriggerListener(TriggerListener listener){
+        triggers.removeListener(listener);
+    }
+
+    /**
+     * Sets the pool the narrowphase runs on when there are many candidate pairs
+     * @param pool ForkJoinPool, or null to always run on the stepping thread
+     */
+    public void setNarrowphasePool(ForkJoinPool pool){
+        narrowphasePool = pool;
+    }
+
+    /**
+     * Sets the minimum number of candidate pairs for a parallel narrowphase
+     * @param threshold number of pairs
+     */
+    public void setParallelThreshold(int threshold){
+        parallelThreshold = Math.max(1, threshold);
+    }
+
+    /**
+     * Compiles the collision map into the rule table indexed by interned group id.
+     * Called whenever a collision is added.
+     */
+    private void compileRules(){
+        for (Map.Entry<String, Map<String, ArrayList<CollisionEvent>>> entry : collisions.entrySet()) {
+            CollisionGroups.idOf(entry.getKey());
+            for (String other : entry.getValue().keySet()) {
+                CollisionGroups.idOf(other);
+            }
+        }
+        int size = CollisionGroups.count();
+        CollisionEvent[][][] table = new CollisionEvent[size][][];
+        long[][] masks = new long[size][];
+        long[] folded = new long[size];
+        for (Map.Entry<String, Map<String, ArrayList<CollisionEvent>>> entry : collisions.entrySet()) {
+            int mvGroup = CollisionGroups.idOf(entry.getKey());
+            table[mvGroup] = new CollisionEvent[size][];
+            masks[mvGroup] = new long[(size + 63) >>> 6];
+            for (Map.Entry<String, ArrayList<CollisionEvent>> otherEntry : entry.getValue().entrySet()) {
+                int otherGroup = CollisionGroups.idOf(otherEntry.getKey());
+                table[mvGroup][otherGroup] = otherEntry.getValue().toArray(new CollisionEvent[0]);
+                masks[mvGroup][otherGroup >>> 6] |= 1L << (otherGroup & 63);
+                folded[mvGroup] |= StaticCollisionGrid.groupBit(otherGroup);
+            }
+        }
+        rules = table;
+        ruleMasks = masks;
+        staticMasks = folded;
+    }
+
+    /**
+     * Checks whether any collision is defined for a pair of groups
+     * @param movingGroup   group id of the moving object
+     * @param otherGroup    group id of the other object
+     * @return true if a CollisionEvent exists for the pair
+     */
+    public boolean hasRule(int movingGroup, int otherGroup){
+        long[] mask = (movingGroup < ruleMasks.length) ? ruleMasks[movingGroup] : null;
+        return mask != null && (otherGroup >>> 6) < mask.length
+                && (mask[otherGroup >>> 6] & (1L << (otherGroup & 63))) != 0;
+    }
+
+    /**
+     * Checks whether any collision is defined for a moving group
+     * @param movingGroup group id of the moving object
+     * @return true if the group collides with anything
+     */
+    public boolean hasRules(int movingGroup){
+        return movingGroup < rules.length && rules[movingGroup] != null;
+    }
+
+    /**
+     * Detects and resolves collisions for every mover in the loaded area; called once
+     * per tick after all movers have stepped.
+     * Detection tests each pair of objects once and records contacts; resolution then
+     * applies their CollisionEvents in a fixed order (by actor id, then other object).
+     * The narrowphase runs in parallel when there are many overlapping pairs.
+     * Sleeping movers are not checked themselves, only against awake movers nearby.
+     * Trigger collisions act once when a pair starts overlapping (see TriggerListener).
+     */
+    public void step(){
+        if(!readyToStep()){
+            return;
+        }
+        refreshBroadphase();
+        if (asleep.length < movers.size()) {
+            asleep = new boolean[movers.size()];
+        }
+        for (int i = 0; i < movers.size(); i++) {
+            asleep[i] = movers.get(i).isAsleep();
+        }
+        contacts.clear();
+        pairs.clear();
+        for (int i = 0; i < movers.size(); i++) {
+            if (!asleep[i]) {
+                detect(movers.get(i), i);
+            }
+        }
+        narrowphaseCache.nextTick();
+        pairs.narrowphase(narrowphasePool, parallelThreshold, narrowphaseCache);
+        pairs.addContactsTo(contacts);
+        pairs.clear();
+        contacts.sort();
+        resolve();
+    }
+
+    /**
+     * Detects and resolves collisions for a single movingObject, against
+     * everything else in the loaded area
      * @param mv MovingObject for collision detection
      */
     public void step(MovingObject mv){
-        if(_gController != null) {
-            if (_gController.gameRunning) {
-                //Borders:
-                if (borders == null) {
-                    borders = new Rectangle(0, 0, _gController.getWindowWidth(), _gController.getWindowHeight()-22);
+        if(!readyToStep()){
+            return;
+        }
+        refreshBroadphase();
+        broadphase.update(mv);
+        contacts.clear();
+        pairs.clear();
+        detect(mv, -1);
+        pairs.narrowphase(null, 0, narrowphaseCache);
+        pairs.addContactsTo(contacts);
+        pairs.clear();
+        contacts.sort();
+        singleActor = mv;
+        resolve();
+        singleActor = null;
+    }
+
+    //True if there is a running game to detect collisions in
+    private boolean readyToStep(){
+        if(_gController == null || !_gController.gameRunning){
+            Log.send(Log.type.DEBUG, TAG, "Collisions suspended, game not running.");
+            return false;
+        }
+        if (borders == null) {
+            borders = new Rectangle(0, 0, _gController.getWindowWidth(), _gController.getWindowHeight()-22);
+        }
+        return true;
+    }
+
+    /**
+     * Finds the contacts of one mover with the borders and background off-limits areas,
+     * and queues overlapping static items and movers for the narrowphase. Pairs with movers earlier in the
+     * resolution order are skipped, since those movers already tested them.
+     * @param mv MovingObject to detect collisions for
+     * @param index mv's position in movers, or -1 to test it against every object
+     */
+    private void detect(MovingObject mv, int index){
+        int mvGroup = mv.getGroupId();
+        int mvOrder = (index < 0) ? orderOf(mv) : index;
+        Rectangle bounds = mv.getBounds();
+        Rectangle swept = mv.getSweptBounds();
+        Rectangle previous = mv.getPreviousBounds();
+        int stepX = mv.getLastStepX();
+        int stepY = mv.getLastStepY();
+        boolean moved = stepX != 0 || stepY != 0;
+
+        //Borders:
+        if (!borders.contains(bounds)) {
+            Log.send(Log.type.DEBUG, TAG, "Borders trigger.");
+            addContact(mv, mvOrder, null, Integer.MIN_VALUE, getCollisionEventsFor(mvGroup, CollisionGroups.BORDERS), null);
+        }
+
+        //Map and static items along the step, from the baked grid:
+        stamp++;
+        touchedCount = 0;
+        int ownerCount = staticGrid.getOwners().size();
+        staticEntries.clear();
+        staticGrid.query(swept, (mvGroup < staticMasks.length) ? staticMasks[mvGroup] : 0, staticEntries);
+        for (int i = 0; i < staticEntries.size(); i++) {
+            StaticCollisionGrid.Entry e = staticEntries.get(i);
+            if (!hasRule(mvGroup, e.getGroupId()) || !swept.intersects(e.getRect())) {
+                continue;
+            }
+            SweptAabb.Hit hit = moved ? SweptAabb.sweep(previous, stepX, stepY, e.getRect()) : null;
+            boolean overlaps = bounds.intersects(e.getRect());
+            if (!overlaps && hit == null) {
+                continue;
+            }
+            int owner = e.getOwnerIndex();
+            if (e.isOffLimitsArea()) {
+                //one contact per background, keeping its earliest hit
+                if (ownerStamps[owner] != stamp) {
+                    ownerStamps[owner] = stamp;
+                    ownerHits[owner] = hit;
+                    touchedOwners[touchedCount++] = owner;
                 } else {
-                    if (!borders.contains(mv.getBounds())) {
-                        Log.send(Log.type.DEBUG, TAG, "Borders trigger.");
-                        ArrayList<CollisionEvent> collisionEvents = getCollisionEventsFor(mv.getGroupCategory(), "borders");
-                        executeCollisions(collisionEvents, mv, null);
-                    }
+                    ownerHits[owner] = earliest(ownerHits[owner], hit);
                 }
+            } else if (overlaps) {
+                pairs.add(mv, mvOrder, e.getOwner(), owner - ownerCount,
+                        getCollisionEventsFor(mvGroup, e.getGroupId()), null, hit, null);
+            } else {    //passed through it during the step
+                addContact(mv, mvOrder, e.getOwner(), owner - ownerCount,
+                        getCollisionEventsFor(mvGroup, e.getGroupId()), hit);
+            }
+        }
+        for (int i = 0; i < touchedCount; i++) {
+            int owner = touchedOwners[i];
+            GameObject obj = staticGrid.getOwners().get(owner);
+            //static geometry resolves before movers
+            addContact(mv, mvOrder, obj, owner - ownerCount, getCollisionEventsFor(mvGroup, obj.getGroupId()), ownerHits[owner]);
+            ownerHits[owner] = null;
+        }
 
-                //Map:
-                Map<String, BackgroundGameObject> backgroundItems = _gController.getBackgroundItems();
-                for (Map.Entry<String, BackgroundGameObject> entry : backgroundItems.entrySet()) {
-
-                    BackgroundGameObject obj = entry.getValue();
-                    for (Rectangle r : obj.getOffLimitsAreas()) {
-                        if (mv.getBounds().intersects(r)) {
-                            ArrayList<CollisionEvent> collisionEvents = getCollisionEventsFor(mv.getGroupCategory(), obj.getGroupCategory());
-                            executeCollisions(collisionEvents, mv, obj);
-                            //Log.send(Log.type.DEBUG, TAG, "Map trigger @: " + mv.toString());
-                        }
-                    }
-                }
+        //Moving and player controlled items along the step:
+        candidates.clear();
+        broadphase.query(swept, candidates);
+        for (int i = 0; i < candidates.size(); i++) {
+            GameObject obj = candidates.get(i);
+            if (obj == mv) {
+                continue;
+            }
+            int objGroup = obj.getGroupId();
+            boolean forward = hasRule(mvGroup, objGroup);
+            boolean backward = index >= 0 && obj instanceof MovingObject && hasRule(objGroup, mvGroup);
+            if (!forward && !backward) {
+                continue;
+            }
+            if (!Broadphase.boundsOf(obj).intersects(swept)) {
+                continue;
+            }
+            int objOrder = orderOf(obj);
+            MovingObject otherMover = (objOrder < movers.size()) ? (MovingObject) obj : null;
+            if (otherMover == null) {
+                continue;   //not indexed for this area
+            }
+            if (index >= 0 && objOrder < index && !asleep[objOrder]) {
+                continue;   //pair already tested from the other mover
+            }
+
+            //sweep with the relative step, as if the other mover stood still
+            int otherStepX = otherMover.getLastStepX();
+            int otherStepY = otherMover.getLastStepY();
+            SweptAabb.Hit hit = (stepX != otherStepX || stepY != otherStepY)
+                    ? SweptAabb.sweep(previous, stepX - otherStepX, stepY - otherStepY, otherMover.getPreviousBounds())
+                    : null;
+            boolean overlaps = obj.getBounds().intersects(bounds);  //transparency checked by narrowphase
+            if (!overlaps && hit == null) {
+                continue;
+            }
+            CollisionEvent[] forwardEvents = forward ? getCollisionEventsFor(mvGroup, objGroup) : null;
+            CollisionEvent[] backwardEvents = backward ? getCollisionEventsFor(objGroup, mvGroup) : null;
+            SweptAabb.Hit forwardHit = (hit == null) ? null : hit.forStep(stepX, stepY, false);
+            SweptAabb.Hit backwardHit = (hit == null) ? null : hit.forStep(otherStepX, otherStepY, true);
+            if (overlaps) {
+                pairs.add(mv, mvOrder, obj, objOrder, forwardEvents, backwardEvents, forwardHit, backwardHit);
+            } else {    //passed through each other during the step
+                addContact(mv, mvOrder, obj, objOrder, forwardEvents, forwardHit);
+                addContact(otherMover, objOrder, mv, mvOrder, backwardEvents, backwardHit);
+            }
+        }
+    }
+
+    //Earlier of two hits; null (overlapping from the start) wins
+    private static SweptAabb.Hit earliest(SweptAabb.Hit a, SweptAabb.Hit b){
+        if (a == null || b == null) {
+            return null;
+        }
+        return (b.getToi() < a.getToi()) ? b : a;
+    }
+
+    //Adds a contact if there are any events for it
+    private void addContact(MovingObject actor, int actorOrder, GameObject other, int otherOrder,
+                            CollisionEvent[] events, SweptAabb.Hit hit){
+        if (events != null && events.length > 0) {
+            contacts.add(actor, actorOrder, other, otherOrder, events, hit);
+        }
+    }
+
+    //Resolution order of an indexed object
+    private int orderOf(GameObject obj){
+        Integer o = order.get(obj);
+        return (o == null) ? Integer.MAX_VALUE : o;
+    }
 
-                //Non-moving items:
-                Map<String, GameObject> staticItems = _gController.getStaticItems();
-                for (Map.Entry<String, GameObject> entry : staticItems.entrySet()) {
-                    GameObject obj = entry.getValue();
-                    if (obj != mv) {
-                        if (!obj.getGroupCategory().equals("background")) {
-                            if (obj.getBounds().intersects(mv.getBounds())) {   //bounding box
-                                if (ImageUtils.imageCollision(obj, mv)) {         //transparency check
-                                    ArrayList<CollisionEvent> collisionEvents = getCollisionEventsFor(mv.getGroupCategory(), obj.getGroupCategory());
-                                    executeCollisions(collisionEvents, mv, obj);
-                                }
-                            } //endif
-                        }
-                    } //endif
-                }//end static items
-
-                //Moving items
-                Map<String, MovingObject> movingItems = _gController.getMovingItems();
-                for (Map.Entry<String, MovingObject> entry : movingItems.entrySet()) {
-                    MovingObject obj = entry.getValue();
-                    if (obj != mv) {
-                        if (obj.getBounds().intersects(mv.getBounds())) {   //bounding box
-                            if (ImageUtils.imageCollision(obj, mv)) {         //transparency check
-                                ArrayList<CollisionEvent> collisionEvents = getCollisionEventsFor(mv.getGroupCategory(), obj.getGroupCategory());
-                                executeCollisions(collisionEvents, mv, obj);
-                            }
-                        } //endif
-                    } //endif
-                }//end moving items
-
-                //Player controlled items
-                Map<String, PlayerControlledObject> PCItems = _gController.getPlayerControlledItems();
-                for (Map.Entry<String, PlayerControlledObject> entry : PCItems.entrySet()) {
-                    PlayerControlledObject obj = entry.getValue();
-                    if (obj != mv) {
-                        if (obj.getBounds().intersects(mv.getBounds())) {   //bounding box
-                            if (ImageUtils.imageCollision(obj, mv)) {         //transparency check
-                                ArrayList<CollisionEvent> collisionEvents = getCollisionEventsFor(mv.getGroupCategory(), obj.getGroupCategory());
-                                executeCollisions(collisionEvents, mv, obj);
-                            }
-                        } //endif
-                    }
-                }//end static items
-            } // end if
+    /**
+     * Applies the CollisionEvents of every contact in order. Trigger events only act
+     * on the tick a pair starts overlapping; pairs no longer overlapping fire their exits.
+     * Stops early if an event loads a different area, since the remaining contacts
+     * belong to the old one; every trigger pair then exits.
+     */
+    private void resolve(){
+        GameSegment area = _gController.getLoadedArea();
+        triggers.beginTick();
+        for (int i = 0; i < contacts.size(); i++) {
+            ContactBuffer.Contact c = contacts.get(i);
+            c.getActor().wake();    //a sleeping mover was hit by an awake one
+            boolean entering = TriggerTracker.hasTrigger(c.getEvents())
+                    && triggers.touch(c.getActor(), c.getActorOrder(), c.getOther(), c.getOtherOrder(), c.getEvents());
+            executeCollisions(c.getEvents(), c.getActor(), c.getOther(), c.getHit(), entering);
+            if (_gController.getLoadedArea() != area) {
+                break;
+            }
+        }
+        contacts.clear();
+        if (_gController.getLoadedArea() == area) {
+            triggers.endTick(this::notDetected, this::stillOverlapping);
+            for (int i = 0; i < movers.size(); i++) {
+                MovingObject obj = movers.get(i);
+                broadphase.update(obj);    //in case a collision moved it
+                obj.updateRest();
+            }
         } else {
-            Log.send(Log.type.DEBUG, TAG, "Collisions suspended, game not running.");
+            triggers.exitAll();
         }
-    } // end step
+    }
+
+    //True for trigger pairs this tick's detection could not have seen, which keep overlapping
+    private boolean notDetected(MovingObject actor, GameObject other){
+        if (singleActor != null) {
+            return actor != singleActor && other != singleActor;
+        }
+        if (!isAsleep(actor)) {
+            return false;
+        }
+        //an awake mover would have found the pair from its side
+        return !(other instanceof MovingObject) || isAsleep((MovingObject) other);
+    }
+
+    //True if a trigger pair still overlaps after resolution (backgrounds are assumed to)
+    private boolean stillOverlapping(MovingObject actor, GameObject other){
+        if (other == null) {
+            return !borders.contains(actor.getBounds());
+        }
+        return other instanceof BackgroundGameObject || actor.getBounds().intersects(other.getBounds());
+    }
+
+    //True if a mover was asleep (not detected) this tick; false if not indexed
+    private boolean isAsleep(MovingObject obj){
+        int o = orderOf(obj);
+        return o < movers.size() && movers.get(o) == obj && asleep[o];
+    }
 
     /**
      * Imports collision details from the specified sub-directory in Files
@@ -204,34 +739,41 @@ public class CollisionController {
             ArrayList<CollisionEvent> list = collisions.get(movingGroup).get(otherGroup); //existing list
             list.add(importedCollision.toCollisionEvent()); //add to
         }
+        compileRules();
     }
 
     /**
-     * Returns the collisionEvents for a particular pair of group tags
-     * @param movingGroup   group for the moving object
-     * @param otherGroup    group for the other object in the collision
-     * @return  ArrayList of CollisionEvents
+     * Returns the collisionEvents for a particular pair of group ids
+     * @param movingGroup   group id for the moving object
+     * @param otherGroup    group id for the other object in the collision
+     * @return  array of CollisionEvents, or null if none
      */
-    private ArrayList<CollisionEvent> getCollisionEventsFor(String movingGroup, String otherGroup){
-        if(collisions.containsKey(movingGroup)){
-            if(collisions.get(movingGroup).containsKey(otherGroup)){
-                return collisions.get(movingGroup).get(otherGroup);
-            }
+    private CollisionEvent[] getCollisionEventsFor(int movingGroup, int otherGroup){
+        CollisionEvent[][] row = (movingGroup < rules.length) ? rules[movingGroup] : null;
+        if(row != null && otherGroup < row.length){
+            return row[otherGroup];
         }
-
         return null;
     }
 
     /**
-     * Executes an ArrayList of collisionEvents
-     * @param collisions    ArrayList of collision events to apply
+     * Executes an array of collisionEvents
+     * @param collisions    collision events to apply, may be null
      * @param actor MovingObject in collision
      * @param other Other GameObject in collision
+     * @param hit swept time of impact and normal for the actor, or null
+     * @param entering true if the pair started overlapping this tick; trigger events only act then
      */
-    private void executeCollisions(ArrayList<CollisionEvent> collisions, MovingObject actor, GameObject other){
+    private void executeCollisions(CollisionEvent[] collisions, MovingObject actor, GameObject other, SweptAabb.Hit hit,
+                                   boolean entering){
         if(collisions != null) {
             for (CollisionEvent entry : collisions) {
-                entry.execute(actor, other);
+                if (!entry.getType().isTrigger()) {
+                    entry.execute(actor, other, _gController, hit);
+                } else if (entering) {
+                    entry.execute(actor, other, _gController, hit);
+                    triggers.fireEnter(actor, other, entry);
+                }
             }
         }
     }
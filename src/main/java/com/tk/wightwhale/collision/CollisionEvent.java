@@ -105,39 +105,68 @@ public class CollisionEvent {
     }
 
     /**
-     * Executes the collisionEvent on two objects
+     * Executes the collisionEvent on two objects in the active GraphicsController
      * @param movingObject  the mover object
      * @param otherObject   the other object in the collision
      */
     public void execute(MovingObject movingObject, GameObject otherObject){
-        if(type != CollisionType.IGNORE) {
+        execute(movingObject, otherObject, GraphicsController.GetController());
+    }
+
+    /**
+     * Executes the collisionEvent on two objects
+     * @param movingObject  the mover object
+     * @param otherObject   the other object in the collision
+     * @param graphicsController the GraphicsController both objects belong to
+     */
+    public void execute(MovingObject movingObject, GameObject otherObject, GraphicsController graphicsController){
+        execute(movingObject, otherObject, graphicsController, null);
+    }
+
+    /**
+     * Executes the collisionEvent on two objects, with the time of impact and
+     * surface normal of the contact if known. BLOCK and BOUNCE_BACK then stop the
+     * mover at the surface, on the axis of the normal only, instead of undoing
+     * its whole step.
+     * @param movingObject  the mover object
+     * @param otherObject   the other object in the collision
+     * @param graphicsController the GraphicsController both objects belong to
+     * @param hit swept contact, or null to respond by direction of movement
+     */
+    public void execute(MovingObject movingObject, GameObject otherObject, GraphicsController graphicsController,
+                        SweptAabb.Hit hit){
+        if(type != CollisionType.IGNORE && hit != null
+                && (type == CollisionType.BLOCK || type == CollisionType.BOUNCE_BACK)) {
+            respondToHit(movingObject, hit);
+        } else if(type != CollisionType.IGNORE) {
             //Log.send(Log.type.INFO, TAG, type.toString());
             point2d direction;
             switch (type) {
                 case BLOCK:
                     direction = getDirectionOfMovement(movingObject);
                     if (direction.x != 0) {   //Horizontal
-                        movingObject.setxPos(movingObject.position.x - movingObject.getdX());
+                        movingObject.rewindX();
                         movingObject.setdX(0);
                     }
                     if (direction.y != 0) {   //Vertical
-                        movingObject.setyPos(movingObject.position.y - movingObject.getdY());
+                        movingObject.rewindY();
                         movingObject.setdY(0);
                     }
                     break;
                 case BOUNCE_BACK: //todo: replace with actual animation/timed slow down
+                    //only bounce a step not already undone, so two contacts in one tick don't cancel out
                     direction = getDirectionOfMovement(movingObject);
-                    if (direction.x != 0) {   //Horizontal
-                        movingObject.setxPos(movingObject.position.x - movingObject.getdX());
+                    if (direction.x != 0 && movingObject.getLastStepX() != 0) {   //Horizontal
+                        movingObject.rewindX();
                         movingObject.setdX(-1 * movingObject.getdX());
                     }
-                    if (direction.y != 0) {   //Vertical
-                        movingObject.setyPos(movingObject.position.y - movingObject.getdY());
+                    if (direction.y != 0 && movingObject.getLastStepY() != 0) {   //Vertical
+                        movingObject.rewindY();
                         movingObject.setdY(-1 * movingObject.getdY());
                     }
                     break;
                 case LOAD_AREA_TRIGGER:
-                    loadArea(movingObject);
+                    loadArea(movingObject, graphicsController);
                     break;
                 case EVENT:
                     executeEvent(movingObject);
@@ -146,11 +175,32 @@ public class CollisionEvent {
         }
     }
 
+    //Stops the mover at the surface hit; BOUNCE_BACK also reverses movement into the surface
+    private void respondToHit(MovingObject mv, SweptAabb.Hit hit){
+        if (hit.getNormalX() != 0) {   //Horizontal
+            if (type == CollisionType.BLOCK) {
+                mv.clipStepX(hit.getAllowedX());
+                mv.setdX(0);
+            } else if (hit.getNormalX() * mv.getdX() < 0) {   //still moving into the surface
+                mv.clipStepX(hit.getAllowedX());
+                mv.setdX(-1 * mv.getdX());
+            }
+        }
+        if (hit.getNormalY() != 0) {   //Vertical
+            if (type == CollisionType.BLOCK) {
+                mv.clipStepY(hit.getAllowedY());
+                mv.setdY(0);
+            } else if (hit.getNormalY() * mv.getdY() < 0) {
+                mv.clipStepY(hit.getAllowedY());
+                mv.setdY(-1 * mv.getdY());
+            }
+        }
+    }
+
     //Loads an area in the current level based on walking direction
     //basically moves across the map with the player
-    private void loadArea(MovingObject mv){
+    private void loadArea(MovingObject mv, GraphicsController graphicsController){
         point2d direction = getDirectionOfMovement(mv);
-        GraphicsController graphicsController = GraphicsController.GetController();
         GameSegment gameSegTemp = graphicsController.getLoadedArea();
         point2d mapArea = new point2d(gameSegTemp.getMapX() + direction.x, gameSegTemp.getMapY() + direction.y);
         gameSegTemp = graphicsController.moveTo(graphicsController.getLevelMap().getLevelId(),
@@ -158,12 +208,12 @@ public class CollisionEvent {
 
         if(gameSegTemp == null) {   //If at edge of map square
             Log.send(Log.type.DEBUG, TAG + "_loadArea", "Map edge.");
-            mv.position.y = mv.position.y - mv.getdY();
-            mv.position.x = mv.position.x - mv.getdX();
+            mv.rewindY();
+            mv.rewindX();
         } else if (gameSegTemp.getId().equals(GameSegment.DEFAULT_ID)){  //If segment undefined
             Log.send(Log.type.DEBUG, TAG + "_loadArea", "Segment undefined.");
-            mv.position.y = mv.position.y - mv.getdY();
-            mv.position.x = mv.position.x - mv.getdX();
+            mv.rewindY();
+            mv.rewindX();
         } else {
             Log.send(Log.type.DEBUG, TAG + "_loadArea",
                     "GameSegment: ID=" + gameSegTemp.getId() + "Map coords: [" + gameSegTemp.getMapX() +
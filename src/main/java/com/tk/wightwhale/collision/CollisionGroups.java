@@ -0,0 +1,68 @@
+package com.tk.wightwhale.collision;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Interns collision group category names to small integer ids, so collision
+ * rules can be looked up by array index instead of by String.
+ * Ids are shared by all worlds and never change once given out.
+ */
+public final class CollisionGroups {
+
+    /** Id of objects with no group category **/
+    public static final int NONE = 0;
+    /** Id of the "background" group **/
+    public static final int BACKGROUND = 1;
+    /** Id of the "borders" pseudo-group (the edges of the play area) **/
+    public static final int BORDERS = 2;
+
+    /** Ids by group name **/
+    private static final Map<String, Integer> ids = new HashMap<>();
+    /** Group names by id **/
+    private static final ArrayList<String> names = new ArrayList<>();
+
+    static {
+        names.add(null);
+        idOf("background");
+        idOf("borders");
+    }
+
+    private CollisionGroups(){ }
+
+    /**
+     * Gets the id for a group name, assigning the next free id to a new name
+     * @param name group category name
+     * @return group id, or NONE if name is null
+     */
+    public static synchronized int idOf(String name){
+        if(name == null){
+            return NONE;
+        }
+        Integer id = ids.get(name);
+        if(id == null){
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the group name for an id
+     * @param id group id
+     * @return group name, or null for NONE or an unknown id
+     */
+    public static synchronized String nameOf(int id){
+        return (id > 0 && id < names.size()) ? names.get(id) : null;
+    }
+
+    /**
+     * Gives the number of ids given out so far (including NONE)
+     * @return group id count
+     */
+    public static synchronized int count(){
+        return names.size();
+    }
+}
@@ -0,0 +1,60 @@
+package com.tk.wightwhale.collision;
+
+import com.tk.wightwhale.actors.GameObject;
+import com.tk.wightwhale.geometry.ConvexPolygon;
+import com.tk.wightwhale.utils.ImageUtils;
+
+/**
+ * How precisely an object's sprite is tested in the narrowphase.
+ * A pair is tested with the coarser shape of its two objects.
+ */
+public enum CollisionShape {
+    BOUNDS, //bounding box only
+    HULL,   //convex hull of the opaque pixels, tested with SAT
+    PIXEL;  //pixel-perfect opacity masks
+
+    /**
+     * Tests whether two objects collide, using the coarser shape of the two
+     * @param object1 first object
+     * @param object2 second object
+     * @return true if the objects collide
+     */
+    public static boolean collides(GameObject object1, GameObject object2){
+        CollisionShape shape = coarser(object1.getCollisionShape(), object2.getCollisionShape());
+        switch (shape){
+            case BOUNDS:
+                return object1.getBounds().intersects(object2.getBounds());
+            case PIXEL:
+                return ImageUtils.imageCollision(object1, object2);
+            case HULL:
+            default:
+                return hullCollision(object1, object2);
+        }
+    }
+
+    /**
+     * Tests whether the convex hulls of two objects' sprites overlap
+     * @param object1 first object
+     * @param object2 second object
+     * @return true if the hulls overlap; false if either sprite has none
+     */
+    public static boolean hullCollision(GameObject object1, GameObject object2){
+        ConvexPolygon hull1 = object1.getHull();
+        ConvexPolygon hull2 = object2.getHull();
+        if(hull1 == null || hull2 == null){
+            return false;
+        }
+        return hull1.intersects(hull2,
+                object2.position.x - object1.position.x, object2.position.y - object1.position.y);
+    }
+
+    /**
+     * Gives the less precise of two shapes
+     * @param a first shape
+     * @param b second shape
+     * @return CollisionShape
+     */
+    public static CollisionShape coarser(CollisionShape a, CollisionShape b){
+        return (a.ordinal() <= b.ordinal()) ? a : b;
+    }
+}
@@ -9,5 +9,15 @@ public enum CollisionType {
     LOAD_AREA_TRIGGER, //loads an area based on the direction of the user walking
     LOAD_LEVEL_TRIGGER, //loads a specific level using code (level #)
     EVENT, //indicates a custom trigger using the code and statEffect integers
-    IGNORE
+    SENSOR, //no response; only reported to TriggerListeners on enter and exit
+    IGNORE;
+
+    /**
+     * Checks whether this type is a trigger, which acts once when a mover
+     * starts overlapping the other object rather than on every tick of overlap
+     * @return true for SENSOR, LOAD_AREA_TRIGGER, LOAD_LEVEL_TRIGGER and EVENT
+     */
+    public boolean isTrigger(){
+        return this == SENSOR || this == LOAD_AREA_TRIGGER || this == LOAD_LEVEL_TRIGGER || this == EVENT;
+    }
 }
@@ -0,0 +1,154 @@
+package com.tk.wightwhale.collision;
+
+import com.tk.wightwhale.actors.GameObject;
+import com.tk.wightwhale.actors.MovingObject;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * Reusable list of contacts found by collision detection, waiting to be resolved.
+ * Contact objects are kept between ticks and overwritten, so a steady-state
+ * tick allocates nothing.
+ */
+public class ContactBuffer {
+
+    /** Orders contacts by actor, then by the other object **/
+    private static final Comparator<Contact> ORDER = (a, b) -> {
+        int c = Integer.compare(a.actorOrder, b.actorOrder);
+        return (c != 0) ? c : Integer.compare(a.otherOrder, b.otherOrder);
+    };
+
+    /** Contact storage; only the first size entries are in use **/
+    private final ArrayList<Contact> contacts;
+    /** Number of contacts in use **/
+    private int size;
+
+    /**
+     * Constructs an empty buffer
+     */
+    public ContactBuffer(){
+        contacts = new ArrayList<>();
+        size = 0;
+    }
+
+    /**
+     * Adds a contact
+     * @param actor MovingObject the events are applied to
+     * @param actorOrder sort key of the actor
+     * @param other other object in the collision, or null for the borders
+     * @param otherOrder sort key of the other object
+     * @param events CollisionEvents to apply
+     */
+    public void add(MovingObject actor, int actorOrder, GameObject other, int otherOrder, CollisionEvent[] events){
+        add(actor, actorOrder, other, otherOrder, events, null);
+    }
+
+    /**
+     * Adds a contact with its swept time of impact
+     * @param actor MovingObject the events are applied to
+     * @param actorOrder sort key of the actor
+     * @param other other object in the collision, or null for the borders
+     * @param otherOrder sort key of the other object
+     * @param events CollisionEvents to apply
+     * @param hit time of impact and normal for the actor, or null if unknown
+     */
+    public void add(MovingObject actor, int actorOrder, GameObject other, int otherOrder, CollisionEvent[] events,
+                    SweptAabb.Hit hit){
+        Contact c;
+        if(size < contacts.size()){
+            c = contacts.get(size);
+        } else {
+            c = new Contact();
+            contacts.add(c);
+        }
+        c.actor = actor;
+        c.actorOrder = actorOrder;
+        c.other = other;
+        c.otherOrder = otherOrder;
+        c.events = events;
+        c.hit = hit;
+        size++;
+    }
+
+    /**
+     * Sorts the contacts by actor then other object, so they are resolved
+     * in the same order regardless of detection order
+     */
+    public void sort(){
+        if(size > 1){
+            contacts.subList(0, size).sort(ORDER);
+        }
+    }
+
+    /**
+     * Gets a contact
+     * @param i index, below size()
+     * @return Contact
+     */
+    public Contact get(int i){
+        return contacts.get(i);
+    }
+
+    /**
+     * Gives the number of contacts
+     * @return contact count
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Empties the buffer, dropping references to the objects
+     */
+    public void clear(){
+        for(int i = 0; i < size; i++){
+            Contact c = contacts.get(i);
+            c.actor = null;
+            c.other = null;
+            c.events = null;
+            c.hit = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * One detected collision: the events to apply to the actor
+     */
+    public static class Contact {
+        private MovingObject actor;
+        private int actorOrder;
+        private GameObject other;
+        private int otherOrder;
+        private CollisionEvent[] events;
+        private SweptAabb.Hit hit;
+
+        public MovingObject getActor(){
+            return actor;
+        }
+
+        public int getActorOrder(){
+            return actorOrder;
+        }
+
+        public GameObject getOther(){
+            return other;
+        }
+
+        public int getOtherOrder(){
+            return otherOrder;
+        }
+
+        public CollisionEvent[] getEvents(){
+            return events;
+        }
+
+        /**
+         * Gets the swept time of impact and normal for the actor
+         * @return Hit, or null if the objects were already overlapping
+         */
+        public SweptAabb.Hit getHit(){
+            return hit;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.tk.wightwhale.collision;
+
+/**
+ * Set of collision groups, for limiting spatial queries to some kinds of object.
+ * Immutable once built.
+ */
+public final class GroupFilter {
+
+    /** Accepts every group **/
+    public static final GroupFilter ALL = new GroupFilter(null);
+
+    /** Accepted group ids, one bit per id; null accepts all **/
+    private final long[] bits;
+    /** bits folded to 64 bits (group id modulo 64), for static grid queries **/
+    private final long folded;
+
+    private GroupFilter(long[] bits){
+        this.bits = bits;
+        long f = 0;
+        if(bits == null){
+            f = -1L;
+        } else {
+            for(int i = 0; i < bits.length * 64; i++){
+                if((bits[i >>> 6] & (1L << (i & 63))) != 0){
+                    f |= StaticCollisionGrid.groupBit(i);
+                }
+            }
+        }
+        folded = f;
+    }
+
+    /**
+     * Creates a filter accepting the named groups
+     * @param groups group names (e.g. "player", "scenery")
+     * @return GroupFilter
+     */
+    public static GroupFilter of(String... groups){
+        int[] ids = new int[groups.length];
+        for(int i = 0; i < groups.length; i++){
+            ids[i] = CollisionGroups.idOf(groups[i]);
+        }
+        return ofIds(ids);
+    }
+
+    /**
+     * Creates a filter accepting the given group ids
+     * @param groupIds interned group ids (see CollisionGroups)
+     * @return GroupFilter
+     */
+    public static GroupFilter ofIds(int... groupIds){
+        int max = 0;
+        for(int id : groupIds){
+            max = Math.max(max, id);
+        }
+        long[] bits = new long[(max >>> 6) + 1];
+        for(int id : groupIds){
+            if(id >= 0){
+                bits[id >>> 6] |= 1L << (id & 63);
+            }
+        }
+        return new GroupFilter(bits);
+    }
+
+    /**
+     * Checks whether a group is accepted
+     * @param groupId interned group id
+     * @return true if accepted
+     */
+    public boolean accepts(int groupId){
+        if(bits == null){
+            return true;
+        }
+        return groupId >= 0 && (groupId >>> 6) < bits.length && (bits[groupId >>> 6] & (1L << (groupId & 63))) != 0;
+    }
+
+    /**
+     * Gives the accepted groups as a mask for StaticCollisionGrid.query
+     * @return bitmask of group ids modulo 64
+     */
+    public long getStaticMask(){
+        return folded;
+    }
+}
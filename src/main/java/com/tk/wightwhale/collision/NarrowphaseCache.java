@@ -0,0 +1,172 @@
+package com.tk.wightwhale.collision;
+
+import com.tk.wightwhale.actors.GameObject;
+import com.tk.wightwhale.utils.CollisionMask;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Remembers the narrowphase result of each pair of objects. If a pair
+ * has the same relative offset, sizes, shapes and images as when it was last tested
+ * (e.g. a player resting against a wall light), the stored result is reused.
+ * Pairs not looked up for a few ticks are dropped.
+ * Not thread-safe: lookups and stores happen on the stepping thread, around
+ * the (possibly parallel) narrowphase.
+ */
+public class NarrowphaseCache {
+
+    /** Ticks an unused pair is kept for **/
+    public static final int MAX_AGE = 4;
+    /** Ticks between sweeps for unused pairs **/
+    private static final int SWEEP_INTERVAL = 32;
+
+    /** Cached pairs; each entry is its own key **/
+    private final Map<Entry, Entry> entries;
+    /** Reused key for lookups **/
+    private final Entry probe;
+    /** Current tick **/
+    private int generation;
+    /** Lookups answered from the cache **/
+    private long hitCount;
+    /** Lookups not answered from the cache **/
+    private long missCount;
+
+    /**
+     * Constructs an empty cache
+     */
+    public NarrowphaseCache(){
+        entries = new HashMap<>();
+        probe = new Entry();
+        generation = 0;
+    }
+
+    /**
+     * Moves on to the next tick, dropping pairs which have not been used recently
+     */
+    public void nextTick(){
+        generation++;
+        if(generation % SWEEP_INTERVAL == 0){
+            Iterator<Entry> it = entries.keySet().iterator();
+            while(it.hasNext()){
+                if(generation - it.next().lastUsed > MAX_AGE){
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up the result of CollisionShape.collides(a, b)
+     * @param a first object
+     * @param b second object
+     * @return 1 for a collision, 0 for none, -1 if not cached or anything changed
+     */
+    public int lookup(GameObject a, GameObject b){
+        probe.a = a;
+        probe.b = b;
+        Entry e = entries.get(probe);
+        probe.a = null;
+        probe.b = null;
+        if(e == null || !e.matches(a, b)){
+            missCount++;
+            return -1;
+        }
+        e.lastUsed = generation;
+        hitCount++;
+        return e.result ? 1 : 0;
+    }
+
+    /**
+     * Stores the result of CollisionShape.collides(a, b) for their current state
+     * @param a first object
+     * @param b second object
+     * @param result narrowphase result
+     */
+    public void store(GameObject a, GameObject b, boolean result){
+        probe.a = a;
+        probe.b = b;
+        Entry e = entries.get(probe);
+        probe.a = null;
+        probe.b = null;
+        if(e == null){
+            e = new Entry();
+            e.a = a;
+            e.b = b;
+            entries.put(e, e);
+        }
+        e.set(a, b, result);
+        e.lastUsed = generation;
+    }
+
+    /**
+     * Drops every cached pair (e.g. when the loaded area changes)
+     */
+    public void clear(){
+        entries.clear();
+    }
+
+    /**
+     * Gives the number of pairs cached
+     * @return pair count
+     */
+    public int size(){
+        return entries.size();
+    }
+
+    public long getHitCount(){
+        return hitCount;
+    }
+
+    public long getMissCount(){
+        return missCount;
+    }
+
+    /**
+     * A pair of objects (by identity) and the state their result was computed for
+     */
+    private static class Entry {
+        GameObject a, b;
+        int dx, dy;
+        int widthA, heightA, widthB, heightB;
+        CollisionMask maskA, maskB;
+        CollisionShape shapeA, shapeB;
+        boolean result;
+        int lastUsed;
+
+        void set(GameObject a, GameObject b, boolean result){
+            dx = b.position.x - a.position.x;
+            dy = b.position.y - a.position.y;
+            widthA = a.getWidth(); heightA = a.getHeight();
+            widthB = b.getWidth(); heightB = b.getHeight();
+            maskA = a.getCollisionMask();
+            maskB = b.getCollisionMask();
+            shapeA = a.getCollisionShape();
+            shapeB = b.getCollisionShape();
+            this.result = result;
+        }
+
+        boolean matches(GameObject a, GameObject b){
+            return dx == b.position.x - a.position.x && dy == b.position.y - a.position.y
+                    && widthA == a.getWidth() && heightA == a.getHeight()
+                    && widthB == b.getWidth() && heightB == b.getHeight()
+                    && maskA == a.getCollisionMask() && maskB == b.getCollisionMask()
+                    && shapeA == a.getCollisionShape() && shapeB == b.getCollisionShape();
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(!(o instanceof Entry)){
+                return false;
+            }
+            Entry other = (Entry) o;
+            return a == other.a && b == other.b;
+        }
+
+        @Override
+        public int hashCode(){
+            return System.identityHashCode(a) * 31 + System.identityHashCode(b);
+        }
+    }
+}
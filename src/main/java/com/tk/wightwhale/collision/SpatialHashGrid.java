@@ -0,0 +1,214 @@
+package com.tk.wightwhale.collision;
+
+import com.tk.wightwhale.actors.GameObject;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform spatial hash broadphase.
+ * Each object is stored in every square cell its bounding box covers,
+ * so only objects which share a cell with a query area are returned.
+ */
+public class SpatialHashGrid implements Broadphase {
+
+    /** Default cell width and height in pixels **/
+    public static final int DEFAULT_CELL_SIZE = 64;
+
+    /** Cell width and height in pixels **/
+    private final int cellSize;
+    /** Objects stored per cell, keyed by packed cell coordinates **/
+    private final Map<Long, ArrayList<GameObject>> cells;
+    /** Range of cells each stored object covers **/
+    private final Map<GameObject, CellRange> ranges;
+
+    /**
+     * Constructs a grid with the default cell size
+     */
+    public SpatialHashGrid(){
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Constructs a grid with the given cell size
+     * @param cellSize cell width and height in pixels; ideally a bit larger than a typical sprite
+     */
+    public SpatialHashGrid(int cellSize){
+        this.cellSize = Math.max(1, cellSize);
+        cells = new HashMap<>();
+        ranges = new IdentityHashMap<>();
+    }
+
+    /**
+     * Removes all objects. Cell lists are kept for reuse.
+     */
+    @Override
+    public void clear(){
+        for(ArrayList<GameObject> list : cells.values()){
+            list.clear();
+        }
+        ranges.clear();
+    }
+
+    /**
+     * Adds an object at its current bounds
+     * @param obj GameObject to add
+     */
+    @Override
+    public void insert(GameObject obj){
+        if(ranges.containsKey(obj)){
+            update(obj);
+            return;
+        }
+        CellRange range = new CellRange();
+        range.set(Broadphase.boundsOf(obj), cellSize);
+        ranges.put(obj, range);
+        addToCells(obj, range);
+    }
+
+    /**
+     * Removes an object
+     * @param obj GameObject to remove
+     */
+    @Override
+    public void remove(GameObject obj){
+        CellRange range = ranges.remove(obj);
+        if(range != null){
+            removeFromCells(obj, range);
+        }
+    }
+
+    /**
+     * Moves an object to the cells for its current bounds (inserts it if not stored).
+     * Cheap when the object is still within the same cells.
+     * @param obj GameObject which may have moved
+     */
+    @Override
+    public void update(GameObject obj){
+        CellRange range = ranges.get(obj);
+        if(range == null){
+            insert(obj);
+            return;
+        }
+        Rectangle bounds = Broadphase.boundsOf(obj);
+        if(!range.matches(bounds, cellSize)){
+            removeFromCells(obj, range);
+            range.set(bounds, cellSize);
+            addToCells(obj, range);
+        }
+    }
+
+    /**
+     * Finds every stored object which shares a cell with the area.
+     * Each object is added to the output once; callers still need
+     * an exact intersection test.
+     * @param area  area to look in
+     * @param out   list the objects are added to (not cleared first)
+     */
+    @Override
+    public void query(Rectangle area, List<GameObject> out){
+        int minX = Math.floorDiv(area.x, cellSize);
+        int minY = Math.floorDiv(area.y, cellSize);
+        int maxX = Math.floorDiv(area.x + Math.max(area.width - 1, 0), cellSize);
+        int maxY = Math.floorDiv(area.y + Math.max(area.height - 1, 0), cellSize);
+
+        for(int cx = minX; cx <= maxX; cx++){
+            for(int cy = minY; cy <= maxY; cy++){
+                ArrayList<GameObject> list = cells.get(key(cx, cy));
+                if(list == null){
+                    continue;
+                }
+                for(int i = 0; i < list.size(); i++){
+                    GameObject obj = list.get(i);
+                    CellRange r = ranges.get(obj);
+                    //report each object only from the first cell it shares with the area
+                    if(cx == Math.max(r.minX, minX) && cy == Math.max(r.minY, minY)){
+                        out.add(obj);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives the number of objects stored
+     * @return object count
+     */
+    @Override
+    public int size(){
+        return ranges.size();
+    }
+
+    @Override
+    public BroadphaseType getType(){
+        return BroadphaseType.SPATIAL_HASH;
+    }
+
+    /**
+     * Gives the cell size
+     * @return cell width and height in pixels
+     */
+    public int getCellSize(){
+        return cellSize;
+    }
+
+    private void addToCells(GameObject obj, CellRange range){
+        for(int cx = range.minX; cx <= range.maxX; cx++){
+            for(int cy = range.minY; cy <= range.maxY; cy++){
+                Long k = key(cx, cy);
+                ArrayList<GameObject> list = cells.get(k);
+                if(list == null){
+                    list = new ArrayList<>();
+                    cells.put(k, list);
+                }
+                list.add(obj);
+            }
+        }
+    }
+
+    private void removeFromCells(GameObject obj, CellRange range){
+        for(int cx = range.minX; cx <= range.maxX; cx++){
+            for(int cy = range.minY; cy <= range.maxY; cy++){
+                ArrayList<GameObject> list = cells.get(key(cx, cy));
+                if(list != null){
+                    for(int i = list.size() - 1; i >= 0; i--){
+                        if(list.get(i) == obj){
+                            list.remove(i);
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    //Packs two cell coordinates into one key
+    private static long key(int cx, int cy){
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    /**
+     * Inclusive range of cell coordinates covered by a rectangle
+     */
+    private static class CellRange {
+        int minX, minY, maxX, maxY;
+
+        void set(Rectangle r, int cellSize){
+            minX = Math.floorDiv(r.x, cellSize);
+            minY = Math.floorDiv(r.y, cellSize);
+            maxX = Math.floorDiv(r.x + Math.max(r.width - 1, 0), cellSize);
+            maxY = Math.floorDiv(r.y + Math.max(r.height - 1, 0), cellSize);
+        }
+
+        boolean matches(Rectangle r, int cellSize){
+            return minX == Math.floorDiv(r.x, cellSize)
+                    && minY == Math.floorDiv(r.y, cellSize)
+                    && maxX == Math.floorDiv(r.x + Math.max(r.width - 1, 0), cellSize)
+                    && maxY == Math.floorDiv(r.y + Math.max(r.height - 1, 0), cellSize);
+        }
+    }
+}
@@ -0,0 +1,376 @@
+package com.tk.wightwhale.collision;
+
+import com.tk.wightwhale.actors.GameObject;
+import com.tk.wightwhale.actors.MovingObject;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Answers "what is near here" questions about the loaded area of a
+ * CollisionController: rectangle and radius queries, k-nearest objects and
+ * line-of-sight raycasts. Moving and player controlled items are found through
+ * the broadphase, static items and background off-limits areas through the
+ * segment's StaticCollisionGrid, so only nearby objects are looked at.
+ * Background off-limits areas are reported as their BackgroundGameObject.
+ * Not thread-safe; use it from the thread stepping the world.
+ */
+public class SpatialQuery {
+
+    /** Half-size of the first square searched by nearest() **/
+    private static final int FIRST_RADIUS = 32;
+    /** Times nearest() doubles its search before searching everything **/
+    private static final int MAX_EXPANSIONS = 8;
+    /** Orders objects by id, null ids last **/
+    private static final Comparator<GameObject> BY_ID =
+            Comparator.comparing(GameObject::getId, Comparator.nullsLast(Comparator.<String>naturalOrder()));
+    /** Orders candidates by distance, then by id **/
+    private static final Comparator<Found> BY_DISTANCE = (a, b) -> {
+        int c = Long.compare(a.distanceSq, b.distanceSq);
+        return (c != 0) ? c : BY_ID.compare(a.obj, b.obj);
+    };
+
+    /** CollisionController whose loaded area is queried **/
+    private final CollisionController controller;
+    /** Reused list of broadphase results **/
+    private final ArrayList<GameObject> candidates;
+    /** Reused list of static grid results **/
+    private final ArrayList<StaticCollisionGrid.Entry> entries;
+    /** Objects found by gather(), with the rectangle each was found by; only the first foundCount are in use **/
+    private final ArrayList<Found> found;
+    /** Number of entries of found in use **/
+    private int foundCount;
+
+    /**
+     * Constructs a query service for a CollisionController
+     * @param controller CollisionController whose loaded area is queried
+     */
+    public SpatialQuery(CollisionController controller){
+        this.controller = controller;
+        candidates = new ArrayList<>();
+        entries = new ArrayList<>();
+        found = new ArrayList<>();
+    }
+
+    /**
+     * Finds the objects overlapping a rectangle
+     * @param area area to look in
+     * @param filter groups to look for
+     * @param out list the objects are added to, each once, in no particular order (not cleared first)
+     */
+    public void queryRect(Rectangle area, GroupFilter filter, List<GameObject> out){
+        gather(area, filter);
+        addDistinct(out);
+    }
+
+    /**
+     * Finds the objects overlapping a rectangle
+     * @param area area to look in
+     * @param filter groups to look for
+     * @return list of objects, in no particular order
+     */
+    public List<GameObject> queryRect(Rectangle area, GroupFilter filter){
+        ArrayList<GameObject> out = new ArrayList<>();
+        queryRect(area, filter, out);
+        return out;
+    }
+
+    /**
+     * Finds the objects within a distance of a point (measured to the nearest edge of their bounds)
+     * @param x X position of the centre
+     * @param y Y position of the centre
+     * @param radius distance in pixels
+     * @param filter groups to look for
+     * @param out list the objects are added to, each once, in no particular order (not cleared first)
+     */
+    public void queryRadius(int x, int y, int radius, GroupFilter filter, List<GameObject> out){
+        gather(new Rectangle(x - radius, y - radius, radius * 2 + 1, radius * 2 + 1), filter);
+        long limit = (long) radius * radius;
+        int kept = 0;
+        for(int i = 0; i < foundCount; i++){
+            Found f = found.get(i);
+            if(distanceSq(x, y, f.rect) <= limit){
+                found.set(i, found.get(kept));
+                found.set(kept++, f);
+            }
+        }
+        foundCount = kept;
+        addDistinct(out);
+    }
+
+    /**
+     * Finds the objects within a distance of a point (measured to the nearest edge of their bounds)
+     * @param x X position of the centre
+     * @param y Y position of the centre
+     * @param radius distance in pixels
+     * @param filter groups to look for
+     * @return list of objects, in no particular order
+     */
+    public List<GameObject> queryRadius(int x, int y, int radius, GroupFilter filter){
+        ArrayList<GameObject> out = new ArrayList<>();
+        queryRadius(x, y, radius, filter, out);
+        return out;
+    }
+
+    /**
+     * Finds the k objects nearest a point (measured to the nearest edge of their bounds).
+     * Searches a square around the point, doubling it until k objects are found inside it.
+     * @param x X position of the point
+     * @param y Y position of the point
+     * @param k number of objects wanted
+     * @param filter groups to look for
+     * @param ignore object to leave out (e.g. the one asking), or null
+     * @return up to k objects, nearest first (ties by id)
+     */
+    public List<GameObject> nearest(int x, int y, int k, GroupFilter filter, GameObject ignore){
+        ArrayList<GameObject> out = new ArrayList<>();
+        if(k <= 0){
+            return out;
+        }
+        int radius = FIRST_RADIUS;
+        for(int pass = 0; pass <= MAX_EXPANSIONS + 1; pass++){
+            Rectangle area = (pass <= MAX_EXPANSIONS)
+                    ? new Rectangle(x - radius, y - radius, radius * 2 + 1, radius * 2 + 1)
+                    : everything(x, y);
+            gather(area, filter);
+            int distinct = rankByDistance(x, y, ignore);
+            //results within radius are final: anything nearer lies inside the square searched
+            long limit = (long) radius * radius;
+            int within = 0;
+            for(int i = 0; i < distinct && found.get(i).distanceSq <= limit; i++){
+                within++;
+            }
+            if(within >= k || pass > MAX_EXPANSIONS){
+                for(int i = 0; i < distinct && out.size() < k; i++){
+                    out.add(found.get(i).obj);
+                }
+                return out;
+            }
+            radius *= 2;
+        }
+        return out;
+    }
+
+    /**
+     * Finds the first object a line segment hits
+     * @param x0 X position of the start
+     * @param y0 Y position of the start
+     * @param x1 X position of the end
+     * @param y1 Y position of the end
+     * @param filter groups which block the line
+     * @param ignore object to leave out (e.g. the one looking), or null
+     * @return RayHit, or null if nothing is hit
+     */
+    public RayHit raycast(int x0, int y0, int x1, int y1, GroupFilter filter, GameObject ignore){
+        int dx = x1 - x0;
+        int dy = y1 - y0;
+        gather(new Rectangle(Math.min(x0, x1), Math.min(y0, y1), Math.abs(dx) + 1, Math.abs(dy) + 1), filter);
+        Rectangle origin = new Rectangle(x0, y0, 0, 0);
+        RayHit best = null;
+        for(int i = 0; i < foundCount; i++){
+            Found f = found.get(i);
+            if(f.obj == ignore){
+                continue;
+            }
+            RayHit hit;
+            if(f.rect.contains(x0, y0)){
+                hit = new RayHit(f.obj, 0, x0, y0, 0, 0);
+            } else {
+                SweptAabb.Hit h = SweptAabb.sweep(origin, dx, dy, f.rect);
+                if(h == null){
+                    continue;
+                }
+                hit = new RayHit(f.obj, h.getToi(), x0 + dx * h.getToi(), y0 + dy * h.getToi(),
+                        h.getNormalX(), h.getNormalY());
+            }
+            if(best == null || hit.fraction < best.fraction
+                    || (hit.fraction == best.fraction && BY_ID.compare(f.obj, best.obj) < 0)){
+                best = hit;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Checks whether a line segment is clear of objects
+     * @param x0 X position of the start
+     * @param y0 Y position of the start
+     * @param x1 X position of the end
+     * @param y1 Y position of the end
+     * @param filter groups which block the line
+     * @param ignore object to leave out (e.g. the one looking), or null
+     * @return true if nothing is hit
+     */
+    public boolean lineOfSight(int x0, int y0, int x1, int y1, GroupFilter filter, GameObject ignore){
+        return raycast(x0, y0, x1, y1, filter, ignore) == null;
+    }
+
+    //Collects the objects (and the rectangles they were found by) overlapping an area into found
+    private void gather(Rectangle area, GroupFilter filter){
+        foundCount = 0;
+        if(!controller.indexLoadedArea()){
+            return;
+        }
+        candidates.clear();
+        controller.getBroadphase().query(area, candidates);
+        for(int i = 0; i < candidates.size(); i++){
+            GameObject obj = candidates.get(i);
+            if(filter.accepts(obj.getGroupId())){
+                Rectangle bounds = obj.getBounds();
+                if(bounds.intersects(area)){
+                    addFound(obj, bounds);
+                }
+            }
+        }
+        entries.clear();
+        controller.getStaticGrid().query(area, filter.getStaticMask(), entries);
+        for(int i = 0; i < entries.size(); i++){
+            StaticCollisionGrid.Entry e = entries.get(i);
+            if(filter.accepts(e.getGroupId()) && e.getRect().intersects(area)){
+                addFound(e.getOwner(), e.getRect());
+            }
+        }
+    }
+
+    private void addFound(GameObject obj, Rectangle rect){
+        if(foundCount < found.size()){
+            Found f = found.get(foundCount);
+            f.obj = obj;
+            f.rect = rect;
+        } else {
+            found.add(new Found(obj, rect));
+        }
+        foundCount++;
+    }
+
+    //Adds the found objects to a list, each once (a background may be found by several areas)
+    private void addDistinct(List<GameObject> out){
+        IdentityHashMap<GameObject, Boolean> seen = null;
+        for(int i = 0; i < foundCount; i++){
+            GameObject obj = found.get(i).obj;
+            if(obj instanceof MovingObject){
+                out.add(obj);   //the broadphase reports each mover once
+            } else {
+                if(seen == null){
+                    seen = new IdentityHashMap<>();
+                }
+                if(seen.put(obj, Boolean.TRUE) == null){
+                    out.add(obj);
+                }
+            }
+        }
+    }
+
+    //Sorts the found objects by distance from a point, keeping each object once at its
+    //nearest; returns the number of distinct objects now at the front of found
+    private int rankByDistance(int x, int y, GameObject ignore){
+        for(int i = 0; i < foundCount; i++){
+            Found f = found.get(i);
+            f.distanceSq = (f.obj == ignore) ? Long.MAX_VALUE : distanceSq(x, y, f.rect);
+        }
+        found.subList(0, foundCount).sort(BY_DISTANCE);
+        IdentityHashMap<GameObject, Boolean> seen = new IdentityHashMap<>();
+        int distinct = 0;
+        for(int i = 0; i < foundCount; i++){
+            Found f = found.get(i);
+            if(f.obj != ignore && seen.put(f.obj, Boolean.TRUE) == null){
+                found.set(i, found.get(distinct));
+                found.set(distinct++, f);
+            }
+        }
+        return distinct;
+    }
+
+    //An area covering every indexed object and the point
+    private Rectangle everything(int x, int y){
+        Rectangle all = new Rectangle(x, y, 1, 1);
+        all.add(controller.getStaticGrid().getExtent());
+        for(MovingObject obj : controller.getMovers()){
+            all.add(obj.getBounds());
+        }
+        return all;
+    }
+
+    //Squared distance from a point to the nearest point of a rectangle, 0 if inside
+    private static long distanceSq(int x, int y, Rectangle r){
+        long dx = Math.max(Math.max(r.x - x, 0), x - (r.x + r.width));
+        long dy = Math.max(Math.max(r.y - y, 0), y - (r.y + r.height));
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * An object found by a query, with the rectangle it was found by
+     */
+    private static class Found {
+        GameObject obj;
+        Rectangle rect;
+        long distanceSq;
+
+        Found(GameObject obj, Rectangle rect){
+            this.obj = obj;
+            this.rect = rect;
+        }
+    }
+
+    /**
+     * The first object hit by a raycast
+     */
+    public static class RayHit {
+        private final GameObject obj;
+        private final double fraction;
+        private final double x, y;
+        private final int normalX, normalY;
+
+        private RayHit(GameObject obj, double fraction, double x, double y, int normalX, int normalY){
+            this.obj = obj;
+            this.fraction = fraction;
+            this.x = x;
+            this.y = y;
+            this.normalX = normalX;
+            this.normalY = normalY;
+        }
+
+        /**
+         * Gets the object hit; a BackgroundGameObject if an off-limits area was hit
+         * @return GameObject
+         */
+        public GameObject getObject(){
+            return obj;
+        }
+
+        /**
+         * Gets how far along the line the hit is
+         * @return fraction of the line (0 to 1); 0 if the line starts inside the object
+         */
+        public double getFraction(){
+            return fraction;
+        }
+
+        public double getX(){
+            return x;
+        }
+
+        public double getY(){
+            return y;
+        }
+
+        /**
+         * Gets the X component of the normal of the surface hit
+         * @return -1, 0 or 1 (0 for both components if the line starts inside the object)
+         */
+        public int getNormalX(){
+            return normalX;
+        }
+
+        /**
+         * Gets the Y component of the normal of the surface hit
+         * @return -1, 0 or 1
+         */
+        public int getNormalY(){
+            return normalY;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.tk.wightwhale.collision;
+
+import com.tk.wightwhale.actors.BackgroundGameObject;
+import com.tk.wightwhale.actors.GameObject;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Occupancy grid of everything in a GameSegment which never moves: background
+ * off-limits areas and static items. It is baked once from the segment's
+ * contents, so finding the static geometry near a mover only looks at the
+ * cells its bounds cover. Each cell keeps a bitmask of the groups in it,
+ * so cells with nothing a mover can collide with are skipped whole.
+ * The grid is read-only once built and safe to query from several threads.
+ */
+public class StaticCollisionGrid {
+
+    /** Default cell width and height in pixels **/
+    public static final int DEFAULT_CELL_SIZE = 32;
+    /** Orders owners by id, null ids last **/
+    private static final Comparator<GameObject> BY_ID =
+            Comparator.comparing(GameObject::getId, Comparator.nullsLast(Comparator.<String>naturalOrder()));
+    /** Shared empty cell **/
+    private static final Entry[] EMPTY = new Entry[0];
+
+    /** Cell width and height in pixels **/
+    private final int cellSize;
+    /** Objects the entries belong to: backgrounds first, then static items, each sorted by id **/
+    private final ArrayList<GameObject> owners;
+    /** Cell coordinates of the first column and row **/
+    private int originX, originY;
+    /** Grid size in cells **/
+    private int columns, rows;
+    /** Entries overlapping each cell, row by row **/
+    private Entry[][] cells;
+    /** Bitmask of group ids (modulo 64) present in each cell **/
+    private long[] cellGroups;
+    /** Total number of entries **/
+    private int entryCount;
+
+    /**
+     * Constructs an empty grid with the default cell size
+     */
+    public StaticCollisionGrid(){
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Constructs an empty grid
+     * @param cellSize cell width and height in pixels
+     */
+    public StaticCollisionGrid(int cellSize){
+        this.cellSize = Math.max(1, cellSize);
+        owners = new ArrayList<>();
+        cells = new Entry[0][];
+        cellGroups = new long[0];
+    }
+
+    /**
+     * Rebuilds the grid from a segment's static contents. Static items in the
+     * "background" group are left out; backgrounds contribute their off-limits areas.
+     * @param backgrounds BackgroundGameObjects of the segment
+     * @param statics static GameObjects of the segment
+     */
+    public void bake(Collection<BackgroundGameObject> backgrounds, Collection<GameObject> statics){
+        owners.clear();
+        ArrayList<GameObject> sorted = new ArrayList<>(backgrounds);
+        sorted.sort(BY_ID);
+        owners.addAll(sorted);
+        int backgroundCount = owners.size();
+        sorted.clear();
+        for(GameObject obj : statics){
+            if(obj.getGroupId() != CollisionGroups.BACKGROUND){
+                sorted.add(obj);
+            }
+        }
+        sorted.sort(BY_ID);
+        owners.addAll(sorted);
+
+        //one entry per off-limits area or static item
+        ArrayList<Entry> entries = new ArrayList<>();
+        for(int i = 0; i < owners.size(); i++){
+            GameObject owner = owners.get(i);
+            if(i < backgroundCount){
+                for(Rectangle r : ((BackgroundGameObject) owner).getOffLimitsAreas()){
+                    entries.add(new Entry(new Rectangle(r), owner, i, true));
+                }
+            } else {
+                entries.add(new Entry(owner.getBounds(), owner, i, false));
+            }
+        }
+        entryCount = entries.size();
+        if(entries.isEmpty()){
+            columns = 0; rows = 0;
+            cells = new Entry[0][];
+            cellGroups = new long[0];
+            return;
+        }
+
+        int minCx = Integer.MAX_VALUE, minCy = Integer.MAX_VALUE;
+        int maxCx = Integer.MIN_VALUE, maxCy = Integer.MIN_VALUE;
+        for(Entry e : entries){
+            e.setCells(cellSize);
+            minCx = Math.min(minCx, e.minCx); minCy = Math.min(minCy, e.minCy);
+            maxCx = Math.max(maxCx, e.maxCx); maxCy = Math.max(maxCy, e.maxCy);
+        }
+        originX = minCx; originY = minCy;
+        columns = maxCx - minCx + 1;
+        rows = maxCy - minCy + 1;
+
+        ArrayList<ArrayList<Entry>> lists = new ArrayList<>(columns * rows);
+        for(int i = 0; i < columns * rows; i++){
+            lists.add(null);
+        }
+        cellGroups = new long[columns * rows];
+        for(Entry e : entries){
+            for(int cy = e.minCy; cy <= e.maxCy; cy++){
+                for(int cx = e.minCx; cx <= e.maxCx; cx++){
+                    int c = (cy - originY) * columns + (cx - originX);
+                    if(lists.get(c) == null){
+                        lists.set(c, new ArrayList<>());
+                    }
+                    lists.get(c).add(e);
+                    cellGroups[c] |= 1L << (e.groupId & 63);
+                }
+            }
+        }
+        cells = new Entry[columns * rows][];
+        for(int c = 0; c < cells.length; c++){
+            cells[c] = (lists.get(c) == null) ? EMPTY : lists.get(c).toArray(new Entry[0]);
+        }
+    }
+
+    /**
+     * Finds the entries whose cells overlap an area. Each entry is added once;
+     * callers still need an exact intersection test.
+     * @param area area to look in
+     * @param groupMask bitmask of group ids (modulo 64) to look for, or -1 for all
+     * @param out list the entries are added to (not cleared first)
+     */
+    public void query(Rectangle area, long groupMask, List<Entry> out){
+        if(cells.length == 0){
+            return;
+        }
+        int minCx = Math.max(Math.floorDiv(area.x, cellSize), originX);
+        int minCy = Math.max(Math.floorDiv(area.y, cellSize), originY);
+        int maxCx = Math.min(Math.floorDiv(area.x + Math.max(area.width - 1, 0), cellSize), originX + columns - 1);
+        int maxCy = Math.min(Math.floorDiv(area.y + Math.max(area.height - 1, 0), cellSize), originY + rows - 1);
+
+        for(int cy = minCy; cy <= maxCy; cy++){
+            for(int cx = minCx; cx <= maxCx; cx++){
+                int c = (cy - originY) * columns + (cx - originX);
+                if((cellGroups[c] & groupMask) == 0){
+                    continue;
+                }
+                Entry[] list = cells[c];
+                for(int i = 0; i < list.length; i++){
+                    Entry e = list[i];
+                    //report each entry only from the first cell it shares with the area
+                    if(cx == Math.max(e.minCx, minCx) && cy == Math.max(e.minCy, minCy)){
+                        out.add(e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives the area covered by the grid's cells
+     * @return Rectangle, empty if the grid has no entries
+     */
+    public Rectangle getExtent(){
+        return new Rectangle(originX * cellSize, originY * cellSize, columns * cellSize, rows * cellSize);
+    }
+
+    /**
+     * Gives the objects entries belong to, in owner index order
+     * @return list of owners (do not modify)
+     */
+    public List<GameObject> getOwners(){
+        return owners;
+    }
+
+    /**
+     * Gives the number of entries (off-limits areas and static items)
+     * @return entry count
+     */
+    public int size(){
+        return entryCount;
+    }
+
+    /**
+     * Gives the cell size
+     * @return cell width and height in pixels
+     */
+    public int getCellSize(){
+        return cellSize;
+    }
+
+    /**
+     * Bitmask bit used for a group id in cell and query masks
+     * @param groupId group id
+     * @return mask with the group's bit set
+     */
+    public static long groupBit(int groupId){
+        return 1L << (groupId & 63);
+    }
+
+    /**
+     * One piece of static geometry: an off-limits area of a background,
+     * or the bounds of a static item
+     */
+    public static class Entry {
+        private final Rectangle rect;
+        private final GameObject owner;
+        private final int ownerIndex;
+        private final int groupId;
+        private final boolean area;
+        private int minCx, minCy, maxCx, maxCy;
+
+        private Entry(Rectangle rect, GameObject owner, int ownerIndex, boolean area){
+            this.rect = rect;
+            this.owner = owner;
+            this.ownerIndex = ownerIndex;
+            this.groupId = owner.getGroupId();
+            this.area = area;
+        }
+
+        private void setCells(int cellSize){
+            minCx = Math.floorDiv(rect.x, cellSize);
+            minCy = Math.floorDiv(rect.y, cellSize);
+            maxCx = Math.floorDiv(rect.x + Math.max(rect.width - 1, 0), cellSize);
+            maxCy = Math.floorDiv(rect.y + Math.max(rect.height - 1, 0), cellSize);
+        }
+
+        /**
+         * Gets the area covered
+         * @return Rectangle (do not modify)
+         */
+        public Rectangle getRect(){
+            return rect;
+        }
+
+        public GameObject getOwner(){
+            return owner;
+        }
+
+        /**
+         * Gets the owner's position in the grid's owner list
+         * @return owner index
+         */
+        public int getOwnerIndex(){
+            return ownerIndex;
+        }
+
+        public int getGroupId(){
+            return groupId;
+        }
+
+        /**
+         * Checks whether this is a background off-limits area (solid over the whole
+         * rectangle) rather than a static item (which needs a pixel test)
+         * @return true for an off-limits area
+         */
+        public boolean isOffLimitsArea(){
+            return area;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.tk.wightwhale.collision;
+
+import com.tk.wightwhale.actors.GameObject;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sort-and-sweep broadphase. Objects are kept sorted by their minimum
+ * coordinate along one axis, and a query only scans the run of objects
+ * whose extent on that axis can reach the area.
+ * Objects move little between ticks, so update() restores the order with
+ * a few insertion-sort swaps instead of a full re-sort.
+ * The axis is picked when the index is rebuilt as the one objects are most
+ * spread along (e.g. X for a long horizontal corridor), unless fixed.
+ */
+public class SweepAndPrune implements Broadphase {
+
+    /** Entries sorted by min along the sweep axis **/
+    private final ArrayList<Entry> entries;
+    /** Entry for each stored object **/
+    private final Map<GameObject, Entry> lookup;
+    /** True to sweep along X, false for Y **/
+    private boolean sweepX;
+    /** True if the axis is re-chosen when the index is rebuilt **/
+    private boolean autoAxis;
+    /** True if entries were inserted since the last full sort **/
+    private boolean unsorted;
+    /** Largest object extent along the sweep axis (never shrinks until clear) **/
+    private int maxExtent;
+
+    /**
+     * Constructs an index which picks its sweep axis automatically
+     */
+    public SweepAndPrune(){
+        entries = new ArrayList<>();
+        lookup = new IdentityHashMap<>();
+        sweepX = true;
+        autoAxis = true;
+        unsorted = false;
+        maxExtent = 0;
+    }
+
+    /**
+     * Constructs an index with a fixed sweep axis
+     * @param sweepX true to sweep along X, false for Y
+     */
+    public SweepAndPrune(boolean sweepX){
+        this();
+        this.sweepX = sweepX;
+        autoAxis = false;
+    }
+
+    @Override
+    public void clear(){
+        entries.clear();
+        lookup.clear();
+        unsorted = false;
+        maxExtent = 0;
+    }
+
+    @Override
+    public void insert(GameObject obj){
+        if(lookup.containsKey(obj)){
+            update(obj);
+            return;
+        }
+        Entry e = new Entry(obj);
+        e.set(Broadphase.boundsOf(obj), sweepX);
+        e.index = entries.size();
+        entries.add(e);
+        lookup.put(obj, e);
+        maxExtent = Math.max(maxExtent, e.max - e.min);
+        unsorted = true;
+    }
+
+    @Override
+    public void remove(GameObject obj){
+        Entry e = lookup.remove(obj);
+        if(e != null){
+            entries.remove(e.index);
+            for(int i = e.index; i < entries.size(); i++){
+                entries.get(i).index = i;
+            }
+        }
+    }
+
+    @Override
+    public void update(GameObject obj){
+        Entry e = lookup.get(obj);
+        if(e == null){
+            insert(obj);
+            return;
+        }
+        e.set(Broadphase.boundsOf(obj), sweepX);
+        maxExtent = Math.max(maxExtent, e.max - e.min);
+        if(!unsorted){
+            restoreOrder(e);
+        }
+    }
+
+    @Override
+    public void query(Rectangle area, List<GameObject> out){
+        ensureSorted();
+        int lo, hi, otherLo, otherHi;
+        if(sweepX){
+            lo = area.x; hi = area.x + area.width;
+            otherLo = area.y; otherHi = area.y + area.height;
+        } else {
+            lo = area.y; hi = area.y + area.height;
+            otherLo = area.x; otherHi = area.x + area.width;
+        }
+
+        //nothing starting before (lo - maxExtent) can reach lo
+        for(int i = firstAtLeast(lo - maxExtent); i < entries.size(); i++){
+            Entry e = entries.get(i);
+            if(e.min > hi){
+                break;
+            }
+            if(e.max >= lo && e.otherMax >= otherLo && e.otherMin <= otherHi){
+                out.add(e.obj);
+            }
+        }
+    }
+
+    @Override
+    public int size(){
+        return entries.size();
+    }
+
+    @Override
+    public BroadphaseType getType(){
+        return BroadphaseType.SWEEP_AND_PRUNE;
+    }
+
+    /**
+     * Gives the current sweep axis
+     * @return true for X, false for Y
+     */
+    public boolean isSweepX(){
+        return sweepX;
+    }
+
+    //Full sort after inserts; re-picks the axis first if automatic
+    private void ensureSorted(){
+        if(!unsorted){
+            return;
+        }
+        if(autoAxis && chooseSweepX() != sweepX){
+            sweepX = !sweepX;
+            maxExtent = 0;
+            for(Entry e : entries){
+                e.set(Broadphase.boundsOf(e.obj), sweepX);
+                maxExtent = Math.max(maxExtent, e.max - e.min);
+            }
+        }
+        Collections.sort(entries, (a, b) -> Integer.compare(a.min, b.min));
+        for(int i = 0; i < entries.size(); i++){
+            entries.get(i).index = i;
+        }
+        unsorted = false;
+    }
+
+    //Picks the axis with the larger variance of object centres
+    private boolean chooseSweepX(){
+        int n = entries.size();
+        if(n < 2){
+            return sweepX;
+        }
+        double sumX = 0, sumY = 0, sumXX = 0, sumYY = 0;
+        for(Entry e : entries){
+            Rectangle r = Broadphase.boundsOf(e.obj);
+            double cx = r.getCenterX(), cy = r.getCenterY();
+            sumX += cx; sumXX += cx * cx;
+            sumY += cy; sumYY += cy * cy;
+        }
+        double varX = sumXX / n - (sumX / n) * (sumX / n);
+        double varY = sumYY / n - (sumY / n) * (sumY / n);
+        return varX >= varY;
+    }
+
+    //Insertion sort step: moves one entry left or right until in order
+    private void restoreOrder(Entry e){
+        int i = e.index;
+        while(i > 0 && entries.get(i - 1).min > e.min){
+            Entry prev = entries.get(i - 1);
+            entries.set(i, prev);
+            prev.index = i;
+            i--;
+        }
+        while(i < entries.size() - 1 && entries.get(i + 1).min < e.min){
+            Entry next = entries.get(i + 1);
+            entries.set(i, next);
+            next.index = i;
+            i++;
+        }
+        entries.set(i, e);
+        e.index = i;
+    }
+
+    //Binary search for the first entry with min >= value
+    private int firstAtLeast(int value){
+        int low = 0, high = entries.size();
+        while(low < high){
+            int mid = (low + high) >>> 1;
+            if(entries.get(mid).min < value){
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * One object's extent along the sweep axis and the other axis
+     */
+    private static class Entry {
+        final GameObject obj;
+        int min, max, otherMin, otherMax;
+        int index;
+
+        Entry(GameObject obj){
+            this.obj = obj;
+        }
+
+        void set(Rectangle r, boolean sweepX){
+            if(sweepX){
+                min = r.x; max = r.x + r.width;
+                otherMin = r.y; otherMax = r.y + r.height;
+            } else {
+                min = r.y; max = r.y + r.height;
+                otherMin = r.x; otherMax = r.x + r.width;
+            }
+        }
+    }
+}
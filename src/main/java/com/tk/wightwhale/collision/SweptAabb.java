@@ -0,0 +1,148 @@
+package com.tk.wightwhale.collision;
+
+import java.awt.Rectangle;
+
+/**
+ * Continuous collision test for a moving axis-aligned box against a
+ * stationary one. Finds the fraction of a step at which the boxes first
+ * touch, so a fast object can be stopped at the surface instead of
+ * passing through anything thinner than its step.
+ */
+public final class SweptAabb {
+
+    /** Allowance for rounding when converting a time of impact back to whole pixels **/
+    private static final double EPSILON = 1e-9;
+
+    private SweptAabb(){ }
+
+    /**
+     * Sweeps a box along a step and finds the first contact with another box
+     * @param moving box at the start of the step
+     * @param dx X distance moved over the step
+     * @param dy Y distance moved over the step
+     * @param target stationary box (for two moving boxes, use the relative step)
+     * @return Hit, or null if the boxes already overlap at the start or never overlap during the step
+     */
+    public static Hit sweep(Rectangle moving, int dx, int dy, Rectangle target){
+        if(moving.intersects(target)){
+            return null;    //no time of impact; already in contact
+        }
+
+        double entryX, exitX, entryY, exitY;
+        if(dx > 0){
+            entryX = (double)(target.x - (moving.x + moving.width)) / dx;
+            exitX = (double)(target.x + target.width - moving.x) / dx;
+        } else if(dx < 0){
+            entryX = (double)(target.x + target.width - moving.x) / dx;
+            exitX = (double)(target.x - (moving.x + moving.width)) / dx;
+        } else if(moving.x + moving.width <= target.x || moving.x >= target.x + target.width){
+            return null;    //never overlaps on X
+        } else {
+            entryX = Double.NEGATIVE_INFINITY;
+            exitX = Double.POSITIVE_INFINITY;
+        }
+
+        if(dy > 0){
+            entryY = (double)(target.y - (moving.y + moving.height)) / dy;
+            exitY = (double)(target.y + target.height - moving.y) / dy;
+        } else if(dy < 0){
+            entryY = (double)(target.y + target.height - moving.y) / dy;
+            exitY = (double)(target.y - (moving.y + moving.height)) / dy;
+        } else if(moving.y + moving.height <= target.y || moving.y >= target.y + target.height){
+            return null;    //never overlaps on Y
+        } else {
+            entryY = Double.NEGATIVE_INFINITY;
+            exitY = Double.POSITIVE_INFINITY;
+        }
+
+        double entry = Math.max(entryX, entryY);
+        double exit = Math.min(exitX, exitY);
+        //touching exactly at the end of the step is not an overlap
+        if(entry >= exit || entry < 0 || entry >= 1){
+            return null;
+        }
+
+        if(entryX > entryY){
+            return new Hit(entry, (dx > 0) ? -1 : 1, 0, dx, dy);
+        } else {
+            return new Hit(entry, 0, (dy > 0) ? -1 : 1, dx, dy);
+        }
+    }
+
+    /**
+     * Time and direction of first contact during one object's step
+     */
+    public static class Hit {
+        private final double toi;
+        private final int normalX, normalY;
+        private final int stepX, stepY;
+
+        /**
+         * Constructs a hit
+         * @param toi fraction of the step at first contact (0 to 1)
+         * @param normalX X component of the surface normal (-1, 0 or 1)
+         * @param normalY Y component of the surface normal (-1, 0 or 1)
+         * @param stepX X distance of the object's step
+         * @param stepY Y distance of the object's step
+         */
+        public Hit(double toi, int normalX, int normalY, int stepX, int stepY){
+            this.toi = toi;
+            this.normalX = normalX;
+            this.normalY = normalY;
+            this.stepX = stepX;
+            this.stepY = stepY;
+        }
+
+        /**
+         * Gets the time of impact
+         * @return fraction of the step at first contact (0 to 1)
+         */
+        public double getToi(){
+            return toi;
+        }
+
+        /**
+         * Gets the X component of the normal of the surface hit, pointing back at the mover
+         * @return -1, 0 or 1
+         */
+        public int getNormalX(){
+            return normalX;
+        }
+
+        /**
+         * Gets the Y component of the normal of the surface hit, pointing back at the mover
+         * @return -1, 0 or 1
+         */
+        public int getNormalY(){
+            return normalY;
+        }
+
+        /**
+         * Gives the same hit for one of two moving boxes (after a sweep with the relative step)
+         * @param stepX X distance of that box's own step
+         * @param stepY Y distance of that box's own step
+         * @param other true for the target box, which sees the normal reversed
+         * @return Hit
+         */
+        public Hit forStep(int stepX, int stepY, boolean other){
+            return other ? new Hit(toi, -normalX, -normalY, stepX, stepY)
+                    : new Hit(toi, normalX, normalY, stepX, stepY);
+        }
+
+        /**
+         * Gives the whole pixels of the X step which can be moved before contact
+         * @return distance in pixels, truncated towards zero
+         */
+        public int getAllowedX(){
+            return (int)(stepX * toi + Math.signum(stepX) * EPSILON);
+        }
+
+        /**
+         * Gives the whole pixels of the Y step which can be moved before contact
+         * @return distance in pixels, truncated towards zero
+         */
+        public int getAllowedY(){
+            return (int)(stepY * toi + Math.signum(stepY) * EPSILON);
+        }
+    }
+}
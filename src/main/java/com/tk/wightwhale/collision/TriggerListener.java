@@ -0,0 +1,29 @@
+package com.tk.wightwhale.collision;
+
+import com.tk.wightwhale.actors.GameObject;
+import com.tk.wightwhale.actors.MovingObject;
+
+/**
+ * Receives trigger collisions (SENSOR, LOAD_AREA_TRIGGER, LOAD_LEVEL_TRIGGER and EVENT)
+ * once when a mover starts overlapping the other object, and once when it stops.
+ * Called on the thread stepping the world.
+ */
+public interface TriggerListener {
+
+    /**
+     * Called when a mover starts overlapping an object it has a trigger collision with
+     * @param actor the mover
+     * @param other the other object, or null for the borders
+     * @param event the trigger CollisionEvent
+     */
+    void onEnter(MovingObject actor, GameObject other, CollisionEvent event);
+
+    /**
+     * Called when a mover stops overlapping an object it has a trigger collision with,
+     * or when either object leaves the loaded area
+     * @param actor the mover
+     * @param other the other object, or null for the borders
+     * @param event the trigger CollisionEvent
+     */
+    void onExit(MovingObject actor, GameObject other, CollisionEvent event);
+}
@@ -0,0 +1,208 @@
+package com.tk.wightwhale.collision;
+
+import com.tk.wightwhale.actors.GameObject;
+import com.tk.wightwhale.actors.MovingObject;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiPredicate;
+
+/**
+ * Keeps the set of pairs overlapping with trigger collisions, so trigger
+ * events fire once when a pair starts overlapping and once when it stops,
+ * rather than on every tick of overlap.
+ */
+public class TriggerTracker {
+
+    /** Orders exits by actor, then by the other object, as contacts are resolved **/
+    private static final Comparator<Pair> ORDER = (a, b) -> {
+        int c = Integer.compare(a.actorOrder, b.actorOrder);
+        return (c != 0) ? c : Integer.compare(a.otherOrder, b.otherOrder);
+    };
+
+    /** Pairs currently overlapping; each pair is its own key **/
+    private final Map<Pair, Pair> active;
+    /** Reused key for lookups **/
+    private final Pair probe;
+    /** Reused list of pairs exiting this tick **/
+    private final ArrayList<Pair> exits;
+    /** Listeners notified of enters and exits **/
+    private final CopyOnWriteArrayList<TriggerListener> listeners;
+    /** Current tick **/
+    private int tick;
+
+    /**
+     * Constructs an empty tracker
+     */
+    public TriggerTracker(){
+        active = new HashMap<>();
+        probe = new Pair();
+        exits = new ArrayList<>();
+        listeners = new CopyOnWriteArrayList<>();
+        tick = 0;
+    }
+
+    /**
+     * Checks whether any of a list of events is a trigger
+     * @param events CollisionEvents, may be null
+     * @return true if at least one event is a trigger
+     */
+    public static boolean hasTrigger(CollisionEvent[] events){
+        if(events != null){
+            for(CollisionEvent e : events){
+                if(e.getType().isTrigger()){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Starts a tick; pairs not touched before endTick() have exited
+     */
+    public void beginTick(){
+        tick++;
+    }
+
+    /**
+     * Records that a pair with trigger events overlaps this tick
+     * @param actor the mover
+     * @param actorOrder sort key of the actor
+     * @param other the other object, or null for the borders
+     * @param otherOrder sort key of the other object
+     * @param events the pair's CollisionEvents
+     * @return true if the pair was not overlapping before (it is entering)
+     */
+    public boolean touch(MovingObject actor, int actorOrder, GameObject other, int otherOrder,
+                         CollisionEvent[] events){
+        probe.actor = actor;
+        probe.other = other;
+        Pair p = active.get(probe);
+        probe.actor = null;
+        probe.other = null;
+        boolean entering = (p == null);
+        if(entering){
+            p = new Pair();
+            p.actor = actor;
+            p.other = other;
+            active.put(p, p);
+        }
+        p.actorOrder = actorOrder;
+        p.otherOrder = otherOrder;
+        p.events = events;
+        p.lastSeen = tick;
+        return entering;
+    }
+
+    /**
+     * Notifies listeners that a pair started overlapping
+     * @param actor the mover
+     * @param other the other object, or null for the borders
+     * @param event the trigger CollisionEvent
+     */
+    public void fireEnter(MovingObject actor, GameObject other, CollisionEvent event){
+        for(TriggerListener l : listeners){
+            l.onEnter(actor, other, event);
+        }
+    }
+
+    /**
+     * Ends a tick, firing exits for the pairs not touched since beginTick(), and for
+     * touched pairs which no longer overlap (e.g. a trigger moved the mover back)
+     * @param carried true for pairs which could not be detected this tick (e.g. both
+     *                objects asleep); these are kept without an exit
+     * @param overlapping true if a touched pair still overlaps after resolution
+     */
+    public void endTick(BiPredicate<MovingObject, GameObject> carried,
+                        BiPredicate<MovingObject, GameObject> overlapping){
+        Iterator<Pair> it = active.keySet().iterator();
+        while(it.hasNext()){
+            Pair p = it.next();
+            boolean keep = (p.lastSeen == tick) ? overlapping.test(p.actor, p.other) : carried.test(p.actor, p.other);
+            if(keep){
+                p.lastSeen = tick;
+            } else {
+                it.remove();
+                exits.add(p);
+            }
+        }
+        fireExits();
+    }
+
+    /**
+     * Fires exits for every overlapping pair and forgets them (e.g. when the loaded area changes)
+     */
+    public void exitAll(){
+        exits.addAll(active.keySet());
+        active.clear();
+        fireExits();
+    }
+
+    /**
+     * Forgets every overlapping pair without firing exits
+     */
+    public void clear(){
+        active.clear();
+    }
+
+    /**
+     * Gives the number of pairs currently overlapping
+     * @return pair count
+     */
+    public int size(){
+        return active.size();
+    }
+
+    public void addListener(TriggerListener listener){
+        listeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(TriggerListener listener){
+        listeners.remove(listener);
+    }
+
+    //Notifies listeners of exits in resolution order, then empties the exit list
+    private void fireExits(){
+        exits.sort(ORDER);
+        for(Pair p : exits){
+            for(CollisionEvent e : p.events){
+                if(e.getType().isTrigger()){
+                    for(TriggerListener l : listeners){
+                        l.onExit(p.actor, p.other, e);
+                    }
+                }
+            }
+        }
+        exits.clear();
+    }
+
+    /**
+     * A mover and the other object (by identity) overlapping with trigger events
+     */
+    private static class Pair {
+        MovingObject actor;
+        GameObject other;
+        int actorOrder, otherOrder;
+        CollisionEvent[] events;
+        int lastSeen;
+
+        @Override
+        public boolean equals(Object o){
+            if(!(o instanceof Pair)){
+                return false;
+            }
+            Pair p = (Pair) o;
+            return actor == p.actor && other == p.other;
+        }
+
+        @Override
+        public int hashCode(){
+            return System.identityHashCode(actor) * 31 + System.identityHashCode(other);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.tk.wightwhale.geometry;
+
+import com.tk.wightwhale.utils.CollisionMask;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Convex polygon with whole-pixel vertices, in clockwise (screen) order.
+ * Built from the opaque pixels of a sprite as a cheaper alternative to
+ * pixel collision, and tested against others with the separating axis theorem.
+ */
+public class ConvexPolygon {
+
+    /** Most vertices kept when simplifying a hull **/
+    public static final int MAX_VERTICES = 12;
+    /** Hulls already built, by mask **/
+    private static final Map<CollisionMask, ConvexPolygon> cache = new WeakHashMap<>();
+
+    /** Vertex X positions **/
+    private final int[] xs;
+    /** Vertex Y positions **/
+    private final int[] ys;
+    /** Edge normals (not normalised), one per edge **/
+    private final long[] axisX, axisY;
+    /** Projection range of this polygon on each of its own edge normals **/
+    private final long[] minProj, maxProj;
+    /** Bounding box **/
+    private final int minX, minY, maxX, maxY;
+
+    /**
+     * Constructs a polygon from vertices which are already convex and in order
+     * @param xs vertex X positions
+     * @param ys vertex Y positions
+     */
+    public ConvexPolygon(int[] xs, int[] ys){
+        if(xs.length != ys.length){
+            throw new IllegalArgumentException("xs and ys must be the same length");
+        }
+        this.xs = xs.clone();
+        this.ys = ys.clone();
+
+        int n = xs.length;
+        axisX = new long[n];
+        axisY = new long[n];
+        minProj = new long[n];
+        maxProj = new long[n];
+        for(int i = 0; i < n; i++){
+            int j = (i + 1 == n) ? 0 : i + 1;
+            axisX[i] = ys[j] - ys[i];
+            axisY[i] = xs[i] - xs[j];
+            minProj[i] = Long.MAX_VALUE;
+            maxProj[i] = Long.MIN_VALUE;
+            for(int k = 0; k < n; k++){
+                long p = axisX[i] * xs[k] + axisY[i] * ys[k];
+                minProj[i] = Math.min(minProj[i], p);
+                maxProj[i] = Math.max(maxProj[i], p);
+            }
+        }
+
+        int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE;
+        int x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE;
+        for(int i = 0; i < n; i++){
+            x0 = Math.min(x0, xs[i]);
+            x1 = Math.max(x1, xs[i]);
+            y0 = Math.min(y0, ys[i]);
+            y1 = Math.max(y1, ys[i]);
+        }
+        minX = x0; minY = y0; maxX = x1; maxY = y1;
+    }
+
+    /**
+     * Gets the hull of a mask, building it on first use
+     * @param mask CollisionMask to build from
+     * @return ConvexPolygon, or null if mask is null or fully transparent
+     */
+    public static ConvexPolygon forMask(CollisionMask mask){
+        if(mask == null){
+            return null;
+        }
+        synchronized (cache){
+            if(cache.containsKey(mask)){
+                return cache.get(mask);
+            }
+            ConvexPolygon hull = fromMask(mask, MAX_VERTICES);
+            cache.put(mask, hull);
+            return hull;
+        }
+    }
+
+    /**
+     * Builds the convex hull of the opaque pixels of a mask. Only the first and
+     * last opaque pixel of each row can be on the hull, so their corners are
+     * the input points.
+     * @param mask CollisionMask to build from
+     * @param maxVertices most vertices to keep (at least 3)
+     * @return ConvexPolygon, or null if the mask is fully transparent
+     */
+    public static ConvexPolygon fromMask(CollisionMask mask, int maxVertices){
+        int[] px = new int[mask.getHeight() * 4];
+        int[] py = new int[px.length];
+        int n = 0;
+        for(int y = 0; y < mask.getHeight(); y++){
+            int left = -1, right = -1;
+            for(int x = 0; x < mask.getWidth(); x++){
+                if(mask.isOpaque(x, y)){
+                    if(left < 0){
+                        left = x;
+                    }
+                    right = x;
+                }
+            }
+            if(left >= 0){
+                px[n] = left;      py[n++] = y;
+                px[n] = left;      py[n++] = y + 1;
+                px[n] = right + 1; py[n++] = y;
+                px[n] = right + 1; py[n++] = y + 1;
+            }
+        }
+        if(n == 0){
+            return null;
+        }
+
+        long[] hull = monotoneChain(px, py, n);
+        hull = simplify(hull, Math.max(3, maxVertices));
+        int[] xs = new int[hull.length];
+        int[] ys = new int[hull.length];
+        for(int i = 0; i < hull.length; i++){
+            xs[i] = unpackX(hull[i]);
+            ys[i] = unpackY(hull[i]);
+        }
+        return new ConvexPolygon(xs, ys);
+    }
+
+    /**
+     * Tests whether this polygon overlaps another (touching edges do not count)
+     * @param other the other polygon
+     * @param offsetX X position of the other polygon's origin, relative to this one
+     * @param offsetY Y position of the other polygon's origin, relative to this one
+     * @return true if no separating axis exists
+     */
+    public boolean intersects(ConvexPolygon other, int offsetX, int offsetY){
+        if(xs.length == 0 || other.xs.length == 0
+                || maxX <= other.minX + offsetX || other.maxX + offsetX <= minX
+                || maxY <= other.minY + offsetY || other.maxY + offsetY <= minY){
+            return false;
+        }
+        return !separatedOnEdgesOf(this, other, offsetX, offsetY)
+                && !separatedOnEdgesOf(other, this, -offsetX, -offsetY);
+    }
+
+    /**
+     * Gives the smallest rectangle containing the polygon
+     * @return Rectangle
+     */
+    public Rectangle getBounds(){
+        return new Rectangle(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    public int getVertexCount(){
+        return xs.length;
+    }
+
+    public int getX(int i){
+        return xs[i];
+    }
+
+    public int getY(int i){
+        return ys[i];
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder("ConvexPolygon[");
+        for(int i = 0; i < xs.length; i++){
+            if(i > 0){
+                sb.append(' ');
+            }
+            sb.append(xs[i]).append(':').append(ys[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    //True if an edge normal of p separates p (at its origin) from q (at offset).
+    //Projects q inline: no shared state, so parallel narrowphase tasks never contend here.
+    private static boolean separatedOnEdgesOf(ConvexPolygon p, ConvexPolygon q, int offsetX, int offsetY){
+        for(int i = 0; i < p.axisX.length; i++){
+            long ax = p.axisX[i], ay = p.axisY[i];
+            long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+            for(int k = 0; k < q.xs.length; k++){
+                long proj = ax * q.xs[k] + ay * q.ys[k];
+                min = Math.min(min, proj);
+                max = Math.max(max, proj);
+            }
+            long shift = ax * offsetX + ay * offsetY;
+            if(p.maxProj[i] <= min + shift || max + shift <= p.minProj[i]){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //Andrew's monotone chain; returns packed vertices in clockwise screen order, collinear points dropped
+    private static long[] monotoneChain(int[] px, int[] py, int n){
+        long[] pts = new long[n];
+        for(int i = 0; i < n; i++){
+            pts[i] = pack(px[i], py[i]);
+        }
+        Arrays.sort(pts);   //by x, then y
+        int unique = 0;
+        for(int i = 0; i < n; i++){
+            if(unique == 0 || pts[i] != pts[unique - 1]){
+                pts[unique++] = pts[i];
+            }
+        }
+        if(unique < 3){
+            return Arrays.copyOf(pts, unique);
+        }
+
+        long[] hull = new long[unique * 2];
+        int k = 0;
+        for(int i = 0; i < unique; i++){
+            while(k >= 2 && cross(hull[k - 2], hull[k - 1], pts[i]) <= 0){
+                k--;
+            }
+            hull[k++] = pts[i];
+        }
+        for(int i = unique - 2, lower = k + 1; i >= 0; i--){
+            while(k >= lower && cross(hull[k - 2], hull[k - 1], pts[i]) <= 0){
+                k--;
+            }
+            hull[k++] = pts[i];
+        }
+        return Arrays.copyOf(hull, k - 1);
+    }
+
+    //Drops the vertex spanning the smallest triangle until at most max remain
+    private static long[] simplify(long[] hull, int max){
+        int n = hull.length;
+        long[] out = hull.clone();
+        while(n > max){
+            int drop = 0;
+            long smallest = Long.MAX_VALUE;
+            for(int i = 0; i < n; i++){
+                long area = Math.abs(cross(out[(i + n - 1) % n], out[i], out[(i + 1) % n]));
+                if(area < smallest){
+                    smallest = area;
+                    drop = i;
+                }
+            }
+            System.arraycopy(out, drop + 1, out, drop, n - drop - 1);
+            n--;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static long cross(long o, long a, long b){
+        long ox = unpackX(o), oy = unpackY(o);
+        return (unpackX(a) - ox) * (unpackY(b) - oy) - (unpackY(a) - oy) * (unpackX(b) - ox);
+    }
+
+    private static long pack(int x, int y){
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    private static int unpackX(long p){
+        return (int)(p >> 32);
+    }
+
+    private static int unpackY(long p){
+        return (int) p;
+    }
+}
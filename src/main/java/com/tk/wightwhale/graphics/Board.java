@@ -1,19 +1,16 @@
 package com.tk.wightwhale.graphics;
 
-import com.tk.wightwhale.actors.*;
-import com.tk.wightwhale.collision.CollisionController;
 import com.tk.wightwhale.utils.Log;
 import com.tk.wightwhale.utils.XmlHandler;
 
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.awt.event.ActionListener;
-import java.util.Map;
 import javax.swing.JPanel;
 
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
-import java.awt.event.KeyAdapter;
-import java.awt.event.KeyEvent;
+import java.util.List;
 
 
 /**
@@ -24,9 +21,13 @@ public class Board extends JPanel implements ActionListener{
     /** Debug Tag  **/
     private static String TAG = "Board";
     /** Key action handler **/
-    private TAdapter keyListener;
+    private KeyHandler keyListener;
+    /** Draws the loaded area **/
+    private SceneRenderer renderer;
     /** GraphicsController **/
     private GraphicsController _gController = null;
+    /** Simulation loop, used for render interpolation (may be null) **/
+    private GameLoop gameLoop = null;
 
     /**
      * Initializes the board
@@ -35,17 +36,54 @@ public class Board extends JPanel implements ActionListener{
      * @param out currently not used
      */
     public Board(XmlHandler<GraphicsController> out) { //outputs gameController on init
-        initBoard();
+        initBoard(GraphicsController.GetController());
             //out.writeToXml(_gController, "", "GameController");
     }
 
-    private void initBoard() {
-        keyListener = new TAdapter();
+    /**
+     * Initializes the board for a specific GraphicsController (e.g. a World's)
+     * @param gController GraphicsController to display
+     */
+    public Board(GraphicsController gController) {
+        initBoard(gController);
+    }
+
+    private void initBoard(GraphicsController gController) {
+        keyListener = new KeyHandler(gController);
         addKeyListener(keyListener);
         setFocusable(true);
         requestFocusInWindow();
-        _gController = GraphicsController.GetController();
+        _gController = gController;
+        renderer = new SceneRenderer(gController);
+
+    }
+
+    /**
+     * Sets the simulation loop whose interpolation value is used to
+     * draw moving sprites between steps
+     * @param gameLoop GameLoop stepping the GraphicsController, or null
+     */
+    public void setGameLoop(GameLoop gameLoop) {
+        this.gameLoop = gameLoop;
+    }
 
+    /**
+     * Requests a repaint of only the regions which changed since the last frame,
+     * or of the whole board if the static content changed.
+     * Used as the GameLoop render callback.
+     */
+    public void repaintDirty() {
+        List<Rectangle> dirty;
+        synchronized (_gController) {   //no step or area change while the scene is read
+            dirty = renderer.collectDirtyRegions(getInterpolation());
+        }
+        if(dirty == null){
+            repaint();
+            return;
+        }
+        for(Rectangle r : dirty){
+            repaint(r);
+        }
     }
 
     /**
@@ -55,38 +93,21 @@ public class Board extends JPanel implements ActionListener{
      */
     @Override
     public void paintComponent(Graphics g) {
-
-        Map<String, BackgroundGameObject> b = _gController.getBackgroundItems();
-        for(Map.Entry<String, BackgroundGameObject> entry : b.entrySet()){
-            BackgroundGameObject obj = entry.getValue();
-            if(obj.isVisible()){
-                g.drawImage(obj.getImage(), obj.getxPos(), obj.getyPos(), null);
+        synchronized (_gController) {   //no step or area change while the frame is drawn
+            Camera camera = _gController.getCamera();
+            if(camera != null){
+                camera.setViewSize(getWidth(), getHeight());
             }
+            renderer.render(g, getInterpolation());
         }
+        Toolkit.getDefaultToolkit().sync();
+    }
 
-        Map<String, GameObject> s = _gController.getStaticItems();
-        for(Map.Entry<String, GameObject> entry : s.entrySet()){
-            GameObject obj = entry.getValue();
-            if(obj.isVisible()) {
-                g.drawImage(obj.getImage(), obj.getxPos(), obj.getyPos(), null);
-            }
+    private double getInterpolation() {
+        if(gameLoop == null){
+            return 1.0; //no loop: draw at the current positions
         }
-        Map<String, MovingObject> m = _gController.getMovingItems();
-        for(Map.Entry<String, MovingObject> entry : m.entrySet()){ //loop renders all graphics registered items
-            MovingObject sprite = entry.getValue();
-            if(sprite.isVisible()) {
-                g.drawImage(sprite.getImage(), sprite.getxPos(), sprite.getyPos(), null);
-            }
-        }
-        Map<String, PlayerControlledObject> p = _gController.getPlayerControlledItems();
-        for(Map.Entry<String, PlayerControlledObject> entry : p.entrySet()){
-            PlayerControlledObject sprite = entry.getValue();
-            if(sprite.isVisible()){
-                g.drawImage(sprite.getImage(), sprite.getxPos(), sprite.getyPos(), null);
-            }
-        }
-
-        Toolkit.getDefaultToolkit().sync();
+        return gameLoop.getInterpolation();
     }
 
     /**
@@ -99,42 +120,4 @@ public class Board extends JPanel implements ActionListener{
     }
 
 
-    /**
-     * Passes on key-press and key-release information to PlayerControlledObjects
-     */
-    private class TAdapter extends KeyAdapter {
-
-        private KeyEvent lastKeyEvent;
-
-        @Override
-        public void keyReleased(KeyEvent e) {
-            lastKeyEvent = null;
-            for(Map.Entry<String, PlayerControlledObject> pcItem : _gController.getPlayerControlledItems().entrySet()){
-                pcItem.getValue().keyReleased(e);
-            }
-        }
-
-        @Override
-        public void keyPressed(KeyEvent e) {
-            if(e.getKeyChar() == 'm'){ //debug - changes to second GameSegment
-                Log.send(Log.type.DEBUG, TAG, "Changed to mapLocation 0-0-1");
-                _gController.moveTo(0, 0, 1);
-            }
-
-            if(lastKeyEvent != null) {
-                if (e.getKeyCode() == lastKeyEvent.getKeyCode()) {
-                    return; //removes duplicate key presses
-                }
-            }
-
-            lastKeyEvent = e;
-            for(Map.Entry<String, PlayerControlledObject> pcItem : _gController.getPlayerControlledItems().entrySet()){
-                PlayerControlledObject pc = pcItem.getValue();
-                pc.keyPressed(e);
-                if(e.getKeyChar() == 'p'){
-                    Log.send(Log.type.DEBUG, TAG, pc.toString());
-                }
-            }
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+package com.tk.wightwhale.graphics;
+
+import com.tk.wightwhale.actors.BackgroundGameObject;
+import com.tk.wightwhale.actors.GameObject;
+import com.tk.wightwhale.actors.MovingObject;
+import com.tk.wightwhale.collision.GroupFilter;
+import com.tk.wightwhale.collision.SpatialQuery;
+import com.tk.wightwhale.levels.GameSegment;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Viewport onto a GameSegment which may be larger than the window.
+ * The camera either stays where it is put or keeps a target object centred,
+ * without showing past the edges of the segment's backgrounds.
+ * After each step the objects near the viewport are looked up in the spatial
+ * index, so the renderer can skip everything else without testing it.
+ */
+public class Camera {
+
+    /** Distance in pixels around the viewport in which objects are kept, so sprites moving between steps are not culled early **/
+    public static final int CULL_MARGIN = 32;
+
+    /** Object kept centred, or null for a fixed camera **/
+    private volatile GameObject target;
+    /** Top-left of the viewport in segment coordinates when not following a target **/
+    private volatile int x, y;
+    /** Viewport size in pixels **/
+    private volatile int viewWidth, viewHeight;
+    /** Area the viewport is kept inside, or null to use the loaded segment's backgrounds **/
+    private volatile Rectangle worldBounds;
+    /** Bounds of the backgrounds of boundsArea **/
+    private Rectangle segmentBounds;
+    /** GameSegment segmentBounds was measured for **/
+    private GameSegment boundsArea;
+    /** Objects near the viewport after the last step, or null before the first lookup **/
+    private volatile Set<GameObject> visible;
+    /** GameSegment visible was looked up in **/
+    private volatile GameSegment visibleArea;
+    /** Reused spatial query results **/
+    private final ArrayList<GameObject> found = new ArrayList<>();
+
+    /**
+     * Constructor
+     * @param viewWidth viewport width in pixels
+     * @param viewHeight viewport height in pixels
+     */
+    public Camera(int viewWidth, int viewHeight){
+        setViewSize(viewWidth, viewHeight);
+    }
+
+    /**
+     * Keeps an object centred in the viewport
+     * @param target object to follow (usually a PlayerControlledObject), or null to stop following
+     */
+    public void follow(GameObject target){
+        this.target = target;
+    }
+
+    /**
+     * Gets the object being followed
+     * @return target, or null for a fixed camera
+     */
+    public GameObject getTarget(){
+        return target;
+    }
+
+    /**
+     * Moves the viewport and stops following
+     * @param x left edge in segment coordinates
+     * @param y top edge in segment coordinates
+     */
+    public void setPosition(int x, int y){
+        target = null;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Sets the viewport size; called by the display when it is resized
+     * @param viewWidth width in pixels
+     * @param viewHeight height in pixels
+     */
+    public void setViewSize(int viewWidth, int viewHeight){
+        this.viewWidth = Math.max(0, viewWidth);
+        this.viewHeight = Math.max(0, viewHeight);
+    }
+
+    public int getViewWidth(){
+        return viewWidth;
+    }
+
+    public int getViewHeight(){
+        return viewHeight;
+    }
+
+    /**
+     * Sets the area the viewport is kept inside
+     * @param worldBounds area in segment coordinates, or null to use the union of the segment's backgrounds
+     */
+    public void setWorldBounds(Rectangle worldBounds){
+        this.worldBounds = (worldBounds == null) ? null : new Rectangle(worldBounds);
+    }
+
+    /**
+     * Gets the left edge of the viewport
+     * @param area GameSegment being shown
+     * @param alpha fraction of a tick since the last step, as used to draw the target
+     * @return x in segment coordinates
+     */
+    public int getX(GameSegment area, double alpha){
+        GameObject t = target;
+        if(t == null){
+            return x;
+        }
+        int tx = (t instanceof MovingObject) ? ((MovingObject) t).getRenderX(alpha) : t.getxPos();
+        Rectangle bounds = getBounds(area);
+        return clamp(tx + t.getWidth() / 2 - viewWidth / 2, bounds.x, bounds.width, viewWidth);
+    }
+
+    /**
+     * Gets the top edge of the viewport
+     * @param area GameSegment being shown
+     * @param alpha fraction of a tick since the last step, as used to draw the target
+     * @return y in segment coordinates
+     */
+    public int getY(GameSegment area, double alpha){
+        GameObject t = target;
+        if(t == null){
+            return y;
+        }
+        int ty = (t instanceof MovingObject) ? ((MovingObject) t).getRenderY(alpha) : t.getyPos();
+        Rectangle bounds = getBounds(area);
+        return clamp(ty + t.getHeight() / 2 - viewHeight / 2, bounds.y, bounds.height, viewHeight);
+    }
+
+    /**
+     * Looks up the objects near the viewport in the spatial index. Called by
+     * GraphicsController after each step, on the simulation thread.
+     * @param area GameSegment which was stepped
+     * @param query spatial index of area
+     */
+    public void updateVisible(GameSegment area, SpatialQuery query){
+        Rectangle view = new Rectangle(getX(area, 1.0), getY(area, 1.0), viewWidth, viewHeight);
+        view.grow(CULL_MARGIN, CULL_MARGIN);
+        found.clear();
+        query.queryRect(view, GroupFilter.ALL, found);
+        Set<GameObject> set = Collections.newSetFromMap(new IdentityHashMap<>(found.size() * 2));
+        set.addAll(found);
+        visibleArea = area;
+        visible = set;      //published to the rendering thread
+    }
+
+    /**
+     * Checks whether an object was near the viewport after the last step
+     * @param area GameSegment being shown
+     * @param obj object to check
+     * @return false only if the spatial index placed obj away from the viewport
+     */
+    public boolean isNearView(GameSegment area, GameObject obj){
+        Set<GameObject> set = visible;
+        return set == null || visibleArea != area || set.contains(obj);
+    }
+
+    //Area the viewport is kept inside
+    private synchronized Rectangle getBounds(GameSegment area){
+        Rectangle bounds = worldBounds;
+        if(bounds != null){
+            return bounds;
+        }
+        if(area != boundsArea || segmentBounds == null){
+            segmentBounds = null;
+            for(BackgroundGameObject obj : area.getBackgroundItems().values()){
+                if(segmentBounds == null){
+                    segmentBounds = obj.getBounds();
+                } else {
+                    segmentBounds.add(obj.getBounds());
+                }
+            }
+            if(segmentBounds == null){
+                segmentBounds = new Rectangle(0, 0, viewWidth, viewHeight);
+            }
+            boundsArea = area;
+        }
+        return segmentBounds;
+    }
+
+    //Keeps a viewport of the given size inside [min, min + extent], or aligns it to min if it does not fit
+    private static int clamp(int pos, int min, int extent, int view){
+        if(extent <= view){
+            return min;
+        }
+        return Math.max(min, Math.min(pos, min + extent - view));
+    }
+}
@@ -0,0 +1,143 @@
+package com.tk.wightwhale.graphics;
+
+import com.tk.wightwhale.utils.Log;
+
+import java.awt.BufferCapabilities;
+import java.awt.Canvas;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.geom.Area;
+import java.awt.image.BufferStrategy;
+import java.util.List;
+
+/**
+ * Actively rendered display: frames are drawn into a BufferStrategy and
+ * shown directly from the GameLoop thread, instead of queueing repaint()
+ * requests for the event thread to coalesce and paint later.
+ * Used instead of Board when ActiveRendering is set in GC_Settings.xml.
+ * When the back buffer keeps its contents between frames, only the regions
+ * which changed are redrawn.
+ */
+public class GameCanvas extends Canvas {
+
+    /** Debug Tag **/
+    private static final String TAG = "GameCanvas";
+    /** Number of buffers in the BufferStrategy **/
+    public static final int BUFFERS = 2;
+
+    /** GraphicsController to display **/
+    private final GraphicsController _gController;
+    /** Draws the loaded area **/
+    private final SceneRenderer renderer;
+    /** Simulation loop, used for render interpolation (may be null) **/
+    private GameLoop gameLoop = null;
+    /** If true, the back buffer keeps its contents after show(), so frames can redraw only dirty regions **/
+    private boolean preservesContents = false;
+    /** Size the last full frame was drawn at, for spotting resizes **/
+    private int lastWidth, lastHeight;
+
+    /**
+     * Initializes the canvas for a GraphicsController
+     * @param gController GraphicsController to display
+     */
+    public GameCanvas(GraphicsController gController) {
+        _gController = gController;
+        renderer = new SceneRenderer(gController);
+        setIgnoreRepaint(true);     //frames are only drawn by renderFrame()
+        setBackground(Color.BLACK);
+        addKeyListener(new KeyHandler(gController));
+        setFocusable(true);
+    }
+
+    /**
+     * Creates the BufferStrategy once the canvas is displayable
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        createBufferStrategy(BUFFERS);
+        //flipped buffers are only kept if copied; blitted ones rotate if there is more than one back buffer
+        BufferCapabilities caps = getBufferStrategy().getCapabilities();
+        preservesContents = caps.isPageFlipping()
+                ? caps.getFlipContents() == BufferCapabilities.FlipContents.COPIED
+                : BUFFERS <= 2;
+        Log.send(Log.type.INFO, TAG, "Buffer strategy created: " + BUFFERS + " buffers, "
+                + (preservesContents ? "dirty region" : "full") + " redraws.");
+    }
+
+    /**
+     * Sets the simulation loop whose interpolation value is used to
+     * draw moving sprites between steps
+     * @param gameLoop GameLoop stepping the GraphicsController, or null
+     */
+    public void setGameLoop(GameLoop gameLoop) {
+        this.gameLoop = gameLoop;
+    }
+
+    /**
+     * Draws and shows one frame. Called from the GameLoop thread as its render
+     * callback; does nothing until the canvas is displayed.
+     */
+    public void renderFrame() {
+        BufferStrategy strategy = getBufferStrategy();
+        if(strategy == null || !isDisplayable()){
+            return;
+        }
+        double alpha = 1.0; //no loop: draw at the current positions
+        if(gameLoop != null){
+            alpha = gameLoop.getInterpolation();
+        }
+
+        boolean full = !preservesContents || getWidth() != lastWidth || getHeight() != lastHeight;
+        try {
+            //redraw fully if the buffer contents were lost (e.g. the display mode changed)
+            do {
+                do {
+                    Graphics g = strategy.getDrawGraphics();
+                    try {
+                        synchronized (_gController) {   //no step while the frame is drawn
+                            drawFrame(g, alpha, full);
+                        }
+                    } finally {
+                        g.dispose();
+                    }
+                    full = true;
+                } while(strategy.contentsRestored());
+                strategy.show();
+            } while(strategy.contentsLost());
+        } catch (IllegalStateException _ex) {
+            Log.send(Log.type.DEBUG, TAG, "Frame skipped, buffers not available: " + _ex.getMessage());
+        }
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    //Draws the whole frame, or only the dirty regions if the back buffer still holds the last one
+    private void drawFrame(Graphics g, double alpha, boolean full){
+        Camera camera = _gController.getCamera();
+        if(camera != null){
+            camera.setViewSize(getWidth(), getHeight());
+        }
+        List<Rectangle> dirty = full ? null : renderer.collectDirtyRegions(alpha);
+        if(dirty == null){
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            renderer.render(g, alpha);
+            lastWidth = getWidth();
+            lastHeight = getHeight();
+            return;
+        }
+        if(dirty.isEmpty()){
+            return;
+        }
+        Area clip = new Area();
+        for(Rectangle r : dirty){
+            clip.add(new Area(r));
+        }
+        g.setClip(clip);
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        renderer.render(g, alpha);
+    }
+}
@@ -0,0 +1,242 @@
+package com.tk.wightwhale.graphics;
+
+import com.tk.wightwhale.utils.Log;
+
+/**
+ * Fixed-timestep simulation loop which runs on its own thread.
+ * GraphicsController.step() is called at a steady tick rate no matter
+ * how long rendering takes. After a stall the loop catches up by running
+ * several ticks back-to-back, and the renderer is given the fraction of a
+ * tick elapsed since the last step so it can interpolate sprite positions.
+ * In variable timestep mode the loop instead calls step(delta) once per
+ * frame with the elapsed time, for uncapped or vsync frame rates.
+ */
+public class GameLoop implements Runnable {
+
+    /** Debug tag **/
+    private static final String TAG = "GameLoop";
+    /** Default maximum number of ticks run back-to-back after a stall **/
+    public static final int DEFAULT_MAX_CATCH_UP = 5;
+
+    /** GraphicsController being stepped **/
+    private final GraphicsController _gController;
+    /** Render callback, run after each batch of ticks (may be null) **/
+    private final Runnable renderer;
+    /** Length of one simulation tick in nanoseconds **/
+    private long tickNanos;
+    /** Minimum time between renders in nanoseconds **/
+    private long frameNanos;
+    /** Maximum number of ticks run back-to-back before the backlog is dropped **/
+    private int maxCatchUp;
+    /** Thread the loop runs on **/
+    private Thread thread;
+    /** Running status - the loop exits when this is false **/
+    private volatile boolean running;
+    /** Fraction of a tick elapsed since the last step, between 0 and 1 **/
+    private volatile double interpolation;
+    /** Number of ticks run since start() **/
+    private volatile long tickCount;
+    /** Number of ticks dropped because the loop fell too far behind **/
+    private volatile long droppedTicks;
+    /** If true, step(delta) is called once per frame instead of fixed ticks **/
+    private volatile boolean variableTimestep;
+
+    /**
+     * Constructor; tick and render rates are taken from the GraphicsController settings
+     * @param gController GraphicsController to step
+     * @param renderer called after each batch of ticks, or null to run without rendering
+     */
+    public GameLoop(GraphicsController gController, Runnable renderer){
+        _gController = gController;
+        this.renderer = renderer;
+        maxCatchUp = DEFAULT_MAX_CATCH_UP;
+        setTickRate(1000.0 / gController.getStepSize());
+        setRenderRate(gController.getRenderFps());
+        interpolation = 0;
+    }
+
+    /**
+     * Starts the loop on a new daemon thread
+     */
+    public synchronized void start(){
+        if(running){
+            Log.send(Log.type.WARNING, TAG, "Attempted to start a loop which is already running.");
+            return;
+        }
+        running = true;
+        tickCount = 0;
+        droppedTicks = 0;
+        thread = new Thread(this, TAG);
+        thread.setDaemon(true);
+        thread.start();
+        Log.send(Log.type.INFO, TAG, "Started at " + (1000000000.0 / tickNanos) + " ticks per second.");
+    }
+
+    /**
+     * Stops the loop and waits for the current iteration to finish
+     */
+    public synchronized void stop(){
+        running = false;
+        if(thread != null && thread != Thread.currentThread()){
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException _ex){
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+        Log.send(Log.type.INFO, TAG, "Stopped after " + tickCount + " ticks (" + droppedTicks + " dropped).");
+    }
+
+    /**
+     * Loop body - should not be called directly, use start()
+     */
+    @Override
+    public void run(){
+        long previous = System.nanoTime();
+        long accumulator = 0;
+        long nextRender = previous;
+
+        while(running){
+            long now = System.nanoTime();
+            if(variableTimestep){
+                previous = variableIteration(now, previous);
+                continue;
+            }
+            accumulator += now - previous;
+            previous = now;
+
+            //run as many fixed ticks as the elapsed time calls for
+            int ticks = 0;
+            while(accumulator >= tickNanos && ticks < maxCatchUp){
+                _gController.step();
+                accumulator -= tickNanos;
+                tickCount++;
+                ticks++;
+            }
+
+            //still behind after catching up: drop the backlog rather than spiral
+            if(accumulator >= tickNanos){
+                droppedTicks += accumulator / tickNanos;
+                accumulator %= tickNanos;
+                Log.send(Log.type.DEBUG, TAG, "Simulation behind, dropped ticks: " + droppedTicks);
+            }
+            interpolation = (double) accumulator / tickNanos;
+
+            if(renderer != null && now >= nextRender){
+                renderer.run();
+                nextRender = now + frameNanos;
+            }
+
+            //sleep until the next tick or frame is due
+            long wakeAt = now + (tickNanos - accumulator);
+            if(renderer != null && frameNanos > 0 && nextRender < wakeAt){
+                wakeAt = nextRender;
+            }
+            long sleepNanos = wakeAt - System.nanoTime();
+            if(sleepNanos > 0){
+                try {
+                    Thread.sleep(sleepNanos / 1000000, (int)(sleepNanos % 1000000));
+                } catch (InterruptedException _ex){
+                    running = false;
+                }
+            }
+        }
+    }
+
+    //One frame of variable timestep mode: step by the elapsed time, render, then wait for the frame rate cap
+    private long variableIteration(long now, long previous){
+        long elapsed = Math.min(now - previous, tickNanos * maxCatchUp); //clamp after a stall
+        _gController.step(elapsed / 1000000.0);
+        tickCount++;
+        interpolation = 1.0;    //positions are already current
+
+        if(renderer != null){
+            renderer.run();
+        }
+
+        long sleepNanos = (now + frameNanos) - System.nanoTime();
+        if(sleepNanos > 0){
+            try {
+                Thread.sleep(sleepNanos / 1000000, (int)(sleepNanos % 1000000));
+            } catch (InterruptedException _ex){
+                running = false;
+            }
+        }
+        return now;
+    }
+
+    /**
+     * Gives the fraction of a tick elapsed since the last step, for render interpolation
+     * @return value between 0 (just stepped) and 1 (next step due)
+     */
+    public double getInterpolation(){
+        return interpolation;
+    }
+
+    /**
+     * Returns the running state
+     * @return true if the loop thread is running
+     */
+    public boolean isRunning(){
+        return running;
+    }
+
+    /**
+     * Number of ticks run since start()
+     * @return tick count
+     */
+    public long getTickCount(){
+        return tickCount;
+    }
+
+    /**
+     * Number of ticks dropped because the simulation fell too far behind
+     * @return dropped tick count
+     */
+    public long getDroppedTicks(){
+        return droppedTicks;
+    }
+
+    /**
+     * Sets the simulation tick rate
+     * @param ticksPerSecond number of steps per second, must be above 0
+     */
+    public void setTickRate(double ticksPerSecond){
+        if(ticksPerSecond <= 0){
+            Log.send(Log.type.WARNING, TAG, "Invalid tick rate " + ticksPerSecond + ", using 1.");
+            ticksPerSecond = 1;
+        }
+        tickNanos = (long)(1000000000.0 / ticksPerSecond);
+    }
+
+    /**
+     * Sets the maximum render rate. If 0 or less, renders once per tick.
+     * @param framesPerSecond maximum renders per second
+     */
+    public void setRenderRate(int framesPerSecond){
+        if(framesPerSecond > 0){
+            frameNanos = 1000000000L / framesPerSecond;
+        } else {
+            frameNanos = 0;
+        }
+    }
+
+    /**
+     * Switches between fixed ticks and one variable-length step(delta) per frame.
+     * In variable mode the render rate caps the frame rate (0 = uncapped).
+     * @param variableTimestep true for variable timestep mode
+     */
+    public void setVariableTimestep(boolean variableTimestep){
+        this.variableTimestep = variableTimestep;
+    }
+
+    /**
+     * Sets the maximum number of ticks run back-to-back after a stall
+     * @param maxCatchUp number of ticks, at least 1
+     */
+    public void setMaxCatchUp(int maxCatchUp){
+        this.maxCatchUp = Math.max(1, maxCatchUp);
+    }
+}
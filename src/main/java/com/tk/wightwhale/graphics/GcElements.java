@@ -2,7 +2,7 @@ package com.tk.wightwhale.graphics;
 import javax.xml.bind.annotation.*;
 
 /**
- * Encapsulates Window Settings (title, height, width + FPS) for import
+ * Encapsulates Window Settings (title, height, width, FPS, render FPS, rendering mode + camera) for import
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlRootElement (name = "WindowSettings")
@@ -19,11 +19,22 @@ public class GcElements {
     /** Graphics refresh rate (FPS) **/
     @XmlElement (name="FPS")
     public int fps;
+    /** Maximum render rate (frames per second); 0 renders once per tick **/
+    @XmlElement (name="RenderFPS")
+    public int renderFps;
+    /** If true, frames are drawn and shown by the game loop (GameCanvas) instead of repaint() **/
+    @XmlElement (name="ActiveRendering")
+    public boolean activeRendering;
+    /** Id of the PlayerControlledObject the camera follows; empty or missing for no camera **/
+    @XmlElement (name="CameraTarget")
+    public String cameraTarget;
 
     public GcElements() {
         windowTitle = "Default Title";
         windowHeight = 600; windowWidth = 900;
         fps = 24;
+        renderFps = 60;
+        activeRendering = false;
     }
 
 }
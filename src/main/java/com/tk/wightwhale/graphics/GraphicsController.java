@@ -8,16 +8,23 @@ import com.tk.wightwhale.collision.CollisionController;
 import com.tk.wightwhale.levels.GameSegment;
 import com.tk.wightwhale.levels.LevelMap;
 import com.tk.wightwhale.levels.LevelController;
+import com.tk.wightwhale.levels.RenderQueue;
 import com.tk.wightwhale.utils.Log;
+import com.tk.wightwhale.utils.SpriteAtlas;
 import com.tk.wightwhale.utils.XmlHandler;
 
 import javax.xml.bind.annotation.*;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * Singleton class which encapsulates all the graphical display info
- * and executes the update loop tasks
+ * Encapsulates all the graphical display info and executes the update loop tasks.
+ * One GraphicsController is registered as the active singleton (the default
+ * world); others can be created per World with their own level and
+ * collision controllers.
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlRootElement (name = "Graphics")
@@ -33,10 +40,10 @@ public class GraphicsController {
     /** Active level map **/
     @XmlTransient
     public static LevelMap activeLevel = null;
-    /** Active level controller  **/
+    /** Active level controller (default world) **/
     @XmlTransient
     public static LevelController activeLevelController = null;
-    /** Active collision controller **/
+    /** Active collision controller (default world) **/
     @XmlTransient
     public static CollisionController activeCollisionController = null;
     /** XmlHandler to import settings in init() **/
@@ -68,6 +75,15 @@ public class GraphicsController {
     /** Game running status - if false, step() does nothing **/
     @XmlTransient
     public boolean gameRunning;
+    /** Level controller used by this instance for moveTo **/
+    @XmlTransient
+    private LevelController _levelController;
+    /** Collision controller run by this instance's step **/
+    @XmlTransient
+    private CollisionController _collisionController;
+    /** Viewport onto the loaded area, or null to draw at segment coordinates **/
+    @XmlTransient
+    private Camera camera;
 
     /**
      * Default constructor
@@ -97,7 +113,40 @@ public class GraphicsController {
         //This may not be necessary but init here anyway:
         activeLevelController = LevelController.getActiveController();          //Initialise levelController
         activeCollisionController = CollisionController.getActiveController();  //Initialise CollisionController
+        if(activeCollisionController.getGraphicsController() != this){
+            activeCollisionController.useActiveGraphicsController();
+        }
         activeCollisionController.importFromXml("CollisionInfo");           //Import collisions in XML
+        _levelController = activeLevelController;
+        _collisionController = activeCollisionController;
+    }
+
+    /**
+     * Constructor for a GraphicsController owned by a World.
+     * This does not register as the active controller or use any of
+     * the static active controllers; it creates its own CollisionController
+     * and starts at the first segment of the first level.
+     * @param levelController LevelController with the levels to play
+     * @param importSettings boolean, true if you want to import from Files/GC_Settings.xml
+     */
+    public GraphicsController(LevelController levelController, boolean importSettings){
+        stepSize = 1;
+        gameRunning = true;
+        settings = null;
+        loadedArea = new GameSegment();
+
+        if(settingsImporter == null)
+            settingsImporter = new XmlHandler<>(GcElements.class);
+
+        _levelController = levelController;
+        levelMap = levelController.getLevel(0);
+        if(levelMap == null){
+            Log.send(Log.type.WARNING, TAG, "GraphicsController created with no levels loaded.");
+        }
+
+        _collisionController = new CollisionController(this);
+        _collisionController.importFromXml("CollisionInfo");
+        init(importSettings);
     }
 
     /**
@@ -130,7 +179,7 @@ public class GraphicsController {
         stepSize = 1000 / settings.fps; //fps into millisecond delay
 
         if(levelMap == null){
-            if (activeLevel != null){
+            if (activeLevel != null && _levelController == activeLevelController){
                 levelMap = activeLevel; //take existing global variables
                 loadLevelImages();
             } else {
@@ -196,9 +245,56 @@ public class GraphicsController {
             }
         }
 
+        loadedArea.bakeStaticGrid();
+        if(!GraphicsEnvironment.isHeadless()){   //nothing to accelerate without a display
+            buildSpriteAtlas(GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration());
+        }
+        followCameraTarget();
         Log.send(Log.type.INFO, TAG, "Images loaded for area " + loadedArea.getId());
     }
 
+    /**
+     * Packs the images of the current area's static, moving and player controlled
+     * items into a SpriteAtlas, replacing any previous one.
+     * Called by loadLevelImages() when a display is available.
+     * @param config configuration to create compatible pages for, or null for plain ARGB images
+     * @return SpriteAtlas of the current area
+     */
+    public SpriteAtlas buildSpriteAtlas(GraphicsConfiguration config) {
+        releaseSpriteAtlas(loadedArea);
+        ArrayList<GameObject> sprites = new ArrayList<>(loadedArea.getStaticItems().values());
+        sprites.addAll(loadedArea.getMovingItems().values());
+        sprites.addAll(loadedArea.getPlayerControlledItems().values());
+        SpriteAtlas atlas = SpriteAtlas.build(sprites, config);
+        loadedArea.setSpriteAtlas(atlas);
+        return atlas;
+    }
+
+    //Flushes and drops a segment's sprite atlas
+    private static void releaseSpriteAtlas(GameSegment area) {
+        if(area.getSpriteAtlas() != null){
+            area.getSpriteAtlas().flush();
+            area.setSpriteAtlas(null);
+        }
+    }
+
+    //Points the camera at the CameraTarget from the settings, creating the camera if needed
+    private void followCameraTarget() {
+        if(settings == null || settings.cameraTarget == null || settings.cameraTarget.isEmpty()){
+            return;
+        }
+        PlayerControlledObject target = loadedArea.getPlayerControlledItemsById(settings.cameraTarget);
+        if(target == null){
+            Log.send(Log.type.WARNING, TAG, "Camera target " + settings.cameraTarget + " not found in area " + loadedArea.getId());
+            return;
+        }
+        if(camera == null){
+            camera = new Camera(settings.windowWidth, settings.windowHeight);
+        }
+        camera.follow(target);
+    }
+
     /**
      * Clears stored com.tk.wightwhale.graphics and removes activeController status
      * if it has it
@@ -238,7 +334,7 @@ public class GraphicsController {
      * @param obj the GameObject to display / use
      * @return success value; log output shows errors.
      */
-    public boolean registerStatic(GameObject obj){
+    public synchronized boolean registerStatic(GameObject obj){
         return loadedArea.registerStatic(obj);
     }
 
@@ -247,7 +343,7 @@ public class GraphicsController {
      * @param mObj the MovingObject to display / use
      * @return success value; log output shows errors
      */
-    public boolean registerMoving(MovingObject mObj){
+    public synchronized boolean registerMoving(MovingObject mObj){
         return loadedArea.registerMoving(mObj);
     }
 
@@ -256,15 +352,61 @@ public class GraphicsController {
      * @param pcObj the PlayerControlledObject to display / use
      * @return success value; log output shows errors
      */
-    public boolean registerPlayerControlled(PlayerControlledObject pcObj) {
+    public synchronized boolean registerPlayerControlled(PlayerControlledObject pcObj) {
         return loadedArea.registerPlayerControlled(pcObj);
     }
 
     //todo: javadoc
-    public boolean registerBackground(BackgroundGameObject bgObj){
+    public synchronized boolean registerBackground(BackgroundGameObject bgObj){
         return loadedArea.registerBackground(bgObj);
     }
 
+    /**
+     * Removes a static object from the current display area
+     * @param id id of the GameObject
+     * @return success value; log output shows errors
+     */
+    public synchronized boolean unregisterStatic(String id){
+        return loadedArea.unregisterStatic(id);
+    }
+
+    /**
+     * Removes a moving object from the current display area
+     * @param id id of the MovingObject
+     * @return success value; log output shows errors
+     */
+    public synchronized boolean unregisterMoving(String id){
+        return loadedArea.unregisterMoving(id);
+    }
+
+    /**
+     * Removes a player controlled object from the current display area
+     * @param id id of the PlayerControlledObject
+     * @return success value; log output shows errors
+     */
+    public synchronized boolean unregisterPlayerControlled(String id){
+        return loadedArea.unregisterPlayerControlled(id);
+    }
+
+    /**
+     * Removes a background object from the current display area
+     * @param id id of the BackgroundGameObject
+     * @return success value; log output shows errors
+     */
+    public synchronized boolean unregisterBackground(String id){
+        return loadedArea.unregisterBackground(id);
+    }
+
+    /**
+     * Returns all items of the current display area in draw order. The queue is
+     * changed by register, unregister and step, so it must only be walked while
+     * holding this controller's lock.
+     * @return RenderQueue
+     */
+    public synchronized RenderQueue getRenderQueue() {
+        return loadedArea.getRenderQueue();
+    }
+
     /**
      * Returns full Map of MovingObjects for current display area
      * @return success value; log output shows errors
@@ -335,7 +477,7 @@ public class GraphicsController {
         return loadedArea;
     }
 
-    public void setLoadedArea(GameSegment loadedArea) {
+    public synchronized void setLoadedArea(GameSegment loadedArea) {
         this.loadedArea = loadedArea;
     }
 
@@ -346,22 +488,23 @@ public class GraphicsController {
      * @param mapAreaY Second coordinate value for segment
      * @return GameSegment in use if successful, null if unsuccessful
      */
-    public GameSegment moveTo(int levelNum, int mapAreaX, int mapAreaY){
+    public synchronized GameSegment moveTo(int levelNum, int mapAreaX, int mapAreaY){
         GameSegment gs = null;
         LevelMap lm;
 
         gameRunning = false;
 
-        if(activeLevelController == null){  //Checks that LevelController exists
-            activeLevelController = LevelController.getActiveController();
-            if(activeLevelController == null){  //no active level controller
+        if(_levelController == null){  //Checks that LevelController exists
+            _levelController = LevelController.getActiveController();
+            if(_levelController == null){  //no active level controller
                 Log.send(Log.type.ERROR, TAG, "Cannot move with no levelController created.");
+                gameRunning = true;
                 return gs;
             }
         }
 
-        if(levelNum < activeLevelController.levels.length && levelNum >= 0){    //checks that level number is in range
-            lm = activeLevelController.levels[levelNum];
+        if(levelNum < _levelController.levels.length && levelNum >= 0){    //checks that level number is in range
+            lm = _levelController.levels[levelNum];
             gs = lm.getSegment(mapAreaX, mapAreaY);
         }
 
@@ -400,11 +543,13 @@ public class GraphicsController {
                             pc.unloadImage();
                         } else {
                             pc.position.x = 100; pc.position.y = 100;
+                            pc.resetInterpolation();
                             gs.registerPlayerControlled(pc);
                         }
                     }
                 }
 
+                releaseSpriteAtlas(loadedArea);
                 loadedArea = gs; //changes loaded area to retrieved gameSegment
                 loadLevelImages();  //loads images for new level
                 Log.send(Log.type.INFO, TAG, "Area " + loadedArea.getId() + " unloaded.");
@@ -417,40 +562,51 @@ public class GraphicsController {
 
     /**
      * Moves all sprites 1 step forward
+     * Synchronized so that a GameLoop thread and the event thread
+     * (e.g. moveTo from a key press) cannot interleave.
      */
-    public void step() {
+    public synchronized void step() {
         if(gameRunning) {
-            Map<String, MovingObject> m = loadedArea.getMovingItems();
-            for (Map.Entry<String, MovingObject> entry : m.entrySet()) {
-                MovingObject obj = entry.getValue();
-                obj.step();
-                activeCollisionController.step(obj);
-            }
-            Map<String, PlayerControlledObject> p = loadedArea.getPlayerControlledItems();
-            for(Map.Entry<String, PlayerControlledObject> entry : p.entrySet()) {
-                PlayerControlledObject obj = entry.getValue();
-                obj.step();
-                activeCollisionController.step(obj);
-            }
+            stepAll(1.0, false);
         }
     }
 
     /**
-     * Moves all sprites 1 step forward based on time in game loop
-     * Currently not functional
+     * Moves all sprites forward based on time in game loop.
+     * Each object moves (dX, dY) * delta / getStepSize(), so a call with
+     * delta = getStepSize() matches step(). Sub-pixel movement is carried
+     * over by each object, and collisions run as in step().
      * @param delta time in miliseconds
      */
-    public void step(double delta) {
+    public synchronized void step(double delta) {
+        if(gameRunning && stepSize > 0) {
+            stepAll(delta / stepSize, true);
+        }
+    }
+
+    //Steps all moving + player controlled items, then runs collisions for them
+    private void stepAll(double scale, boolean variable) {
         Map<String, MovingObject> m = loadedArea.getMovingItems();
-        for(Map.Entry<String, MovingObject> entry : m.entrySet()){
+        for (Map.Entry<String, MovingObject> entry : m.entrySet()) {
             MovingObject obj = entry.getValue();
-            //adjusts distance of step
-            double xAxis = obj.getdX() * delta;
-            double yAxis = obj.getdY() * delta;
-            obj.setdX((int)xAxis);
-            obj.setdY((int)yAxis);
-            //end
-            obj.step();
+            if(variable) {
+                obj.step(scale);
+            } else {
+                obj.step();
+            }
+        }
+        Map<String, PlayerControlledObject> p = loadedArea.getPlayerControlledItems();
+        for(Map.Entry<String, PlayerControlledObject> entry : p.entrySet()) {
+            PlayerControlledObject obj = entry.getValue();
+            if(variable) {
+                obj.step(scale);
+            } else {
+                obj.step();
+            }
+        }
+        _collisionController.step();
+        if(camera != null){
+            camera.updateVisible(loadedArea, _collisionController.getSpatialQuery());
         }
     }
 
@@ -497,6 +653,30 @@ public class GraphicsController {
         this.settings = settings;
     }
 
+    /**
+     * Gives the maximum render rate used by GameLoop
+     * @return frames per second, 0 to render once per tick
+     */
+    public int getRenderFps() {
+        return settings.renderFps;
+    }
+
+    public void setRenderFps(int renderFps) {
+        settings.renderFps = renderFps;
+    }
+
+    /**
+     * Checks whether the window should use active rendering (GameCanvas)
+     * @return true for active rendering, false for repaint() on a Board
+     */
+    public boolean isActiveRendering() {
+        return settings.activeRendering;
+    }
+
+    public void setActiveRendering(boolean activeRendering) {
+        settings.activeRendering = activeRendering;
+    }
+
     /**
      * Gives the number of miliseconds between com.tk.wightwhale.graphics
      * processing loops.
@@ -510,6 +690,38 @@ public class GraphicsController {
         this.stepSize = stepSize;
     }
 
+    /**
+     * Returns the camera the loaded area is viewed through
+     * @return Camera, or null if the scene is drawn at segment coordinates
+     */
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+     * Sets the camera the loaded area is viewed through
+     * @param camera Camera, or null to draw at segment coordinates
+     */
+    public void setCamera(Camera camera) {
+        this.camera = camera;
+    }
+
+    /**
+     * Returns the CollisionController run by step()
+     * @return CollisionController
+     */
+    public CollisionController getCollisionController() {
+        return _collisionController;
+    }
+
+    /**
+     * Returns the LevelController used by moveTo()
+     * @return LevelController
+     */
+    public LevelController getLevelController() {
+        return _levelController;
+    }
+
     public LevelMap getLevelMap() {
         return levelMap;
     }
@@ -0,0 +1,64 @@
+package com.tk.wightwhale.graphics;
+
+import com.tk.wightwhale.actors.PlayerControlledObject;
+import com.tk.wightwhale.utils.Log;
+
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.util.Map;
+
+/**
+ * Passes on key-press and key-release information to PlayerControlledObjects
+ */
+public class KeyHandler extends KeyAdapter {
+
+    /** Debug Tag **/
+    private static final String TAG = "KeyHandler";
+    /** GraphicsController whose player controlled items receive keys **/
+    private final GraphicsController _gController;
+    /** Last key pressed and not yet released **/
+    private KeyEvent lastKeyEvent;
+
+    /**
+     * Constructor
+     * @param gController GraphicsController whose player controlled items receive keys
+     */
+    public KeyHandler(GraphicsController gController){
+        _gController = gController;
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        lastKeyEvent = null;
+        synchronized (_gController) {   //the game loop may be stepping or changing area
+            for(Map.Entry<String, PlayerControlledObject> pcItem : _gController.getPlayerControlledItems().entrySet()){
+                pcItem.getValue().keyReleased(e);
+            }
+        }
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        if(e.getKeyChar() == 'm'){ //debug - changes to second GameSegment
+            Log.send(Log.type.DEBUG, TAG, "Changed to mapLocation 0-0-1");
+            _gController.moveTo(0, 0, 1);
+        }
+
+        if(lastKeyEvent != null) {
+            if (e.getKeyCode() == lastKeyEvent.getKeyCode()) {
+                return; //removes duplicate key presses
+            }
+        }
+
+        lastKeyEvent = e;
+        synchronized (_gController) {   //the game loop may be stepping or changing area
+            for(Map.Entry<String, PlayerControlledObject> pcItem : _gController.getPlayerControlledItems().entrySet()){
+                PlayerControlledObject pc = pcItem.getValue();
+                pc.keyPressed(e);
+                if(e.getKeyChar() == 'p'){
+                    Log.send(Log.type.DEBUG, TAG, pc.toString());
+                }
+            }
+        }
+    }
+}
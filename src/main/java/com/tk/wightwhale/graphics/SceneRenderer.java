@@ -0,0 +1,406 @@
+package com.tk.wightwhale.graphics;
+
+import com.tk.wightwhale.actors.GameObject;
+import com.tk.wightwhale.actors.MovingObject;
+import com.tk.wightwhale.levels.GameSegment;
+import com.tk.wightwhale.levels.RenderQueue;
+import com.tk.wightwhale.utils.Log;
+
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Draws the loaded area of a GraphicsController in RenderQueue order, with
+ * moving and player controlled items at their interpolated positions.
+ * Shared by the passive Board and the active GameCanvas.
+ * Backgrounds and static items never move, so those drawn before the first
+ * moving item are composited once into a cached static layer which each
+ * frame draws with a single blit.
+ * The renderer also remembers where each sprite was drawn, so a display can
+ * ask which regions changed and repaint only those (see collectDirtyRegions).
+ * If the GraphicsController has a Camera, the scene is drawn offset by the
+ * camera position and objects away from the viewport are skipped.
+ * The public methods lock the GraphicsController, the same lock as step()
+ * and register/unregister, so the render queue never changes mid-frame.
+ */
+public class SceneRenderer {
+
+    /** Debug Tag **/
+    private static final String TAG = "SceneRenderer";
+
+    /** GraphicsController whose loaded area is drawn **/
+    private final GraphicsController _gController;
+    /** Backgrounds and static items composited together, or null if not built **/
+    private Image staticLayer;
+    /** Position the static layer is drawn at **/
+    private int layerX, layerY;
+    /** GameSegment the static layer was built for **/
+    private GameSegment layerArea;
+    /** Static content version of layerArea when the static layer was built **/
+    private int layerVersion;
+    /** Static drawing version of layerArea when the static layer was built **/
+    private int layerDrawVersion;
+    /** Number of leading queue items composited into the static layer **/
+    private int layerPrefix;
+    /** Where each sprite was last drawn, for dirty region tracking **/
+    private final IdentityHashMap<MovingObject, DrawnSprite> drawn = new IdentityHashMap<>();
+    /** Regions a clipped render could not fully redraw, reported by the next collectDirtyRegions **/
+    private final List<Rectangle> pending = new ArrayList<>();
+    /** If true, the next collectDirtyRegions asks for a full redraw **/
+    private boolean fullRedraw = true;
+    /** Incremented on each render and collectDirtyRegions, for spotting sprites which were removed **/
+    private int pass;
+    /** Number of drawn sprites seen visible in the current pass **/
+    private int seen;
+    /** Reused bounds of the sprite being drawn **/
+    private final Rectangle current = new Rectangle();
+    /** Camera of the frame being drawn, or null **/
+    private Camera camera;
+    /** Viewport of the frame being drawn in segment coordinates (unused without a camera) **/
+    private final Rectangle view = new Rectangle();
+    /** Camera position the last frame was drawn at **/
+    private int originX, originY;
+
+    /**
+     * Constructor
+     * @param gController GraphicsController to draw
+     */
+    public SceneRenderer(GraphicsController gController){
+        _gController = gController;
+    }
+
+    /**
+     * Draws one frame, or the part of it inside the clip of g. Sprites which
+     * do not touch the clip are skipped.
+     * @param g Graphics to draw on
+     * @param alpha fraction of a tick since the last step, for interpolating moving sprites (1 = current positions)
+     */
+    public void render(Graphics g, double alpha){
+        synchronized (_gController) {
+            updateView(alpha);
+            g.translate(-originX, -originY);
+            try {
+                renderScene(g, alpha);
+            } finally {
+                g.translate(originX, originY);
+            }
+        }
+    }
+
+    //Draws the frame in segment coordinates
+    private void renderScene(Graphics g, double alpha){
+        Shape clip = g.getClip();
+        if(clip == null){
+            pending.clear();
+        }
+        fullRedraw = false;
+        pass++;
+        seen = 0;
+        GameSegment area = _gController.getLoadedArea();
+        RenderQueue queue = _gController.getRenderQueue();
+        int prefix = staticPrefix(queue);
+        drawStaticLayer(g, queue, prefix);
+
+        for(int i = prefix; i < queue.size(); i++){ //renders all graphics registered items above the static layer
+            GameObject obj = queue.get(i);
+            if(queue.isDynamic(i)){
+                if(camera == null || camera.isNearView(area, obj)){
+                    drawSprite(g, (MovingObject) obj, clip, alpha);
+                }
+            } else if(obj.isVisible() && inView(obj)){
+                obj.draw(g, obj.getxPos(), obj.getyPos());
+            }
+        }
+
+        //removed or hidden sprites are forgotten once their old bounds have been redrawn
+        if(seen != drawn.size()){
+            Iterator<DrawnSprite> it = drawn.values().iterator();
+            while(it.hasNext()){
+                DrawnSprite d = it.next();
+                if(d.pass != pass && (clip == null || d.image == null || clip.contains(d.bounds))){
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives the regions which have to be redrawn to bring the display up to date:
+     * the old and new bounds of every sprite which moved, changed image or draw
+     * order, appeared or disappeared since it was last drawn. Each region returned should be
+     * passed to render() as a clip (or all of them in one clip) before the next call.
+     * @param alpha fraction of a tick since the last step, as will be passed to render()
+     * @return regions to redraw in display coordinates (empty if nothing changed),
+     * or null if the whole display must be redrawn (including when the camera moved)
+     */
+    public List<Rectangle> collectDirtyRegions(double alpha){
+        synchronized (_gController) {
+            return dirtyRegions(alpha);
+        }
+    }
+
+    //Body of collectDirtyRegions, called with the GraphicsController locked
+    private List<Rectangle> dirtyRegions(double alpha){
+        int lastX = originX, lastY = originY;
+        updateView(alpha);
+        if(fullRedraw || originX != lastX || originY != lastY || !isStaticLayerCurrent()){
+            return null;
+        }
+        pass++;
+        List<Rectangle> dirty = new ArrayList<>(pending);
+        pending.clear();
+        GameSegment area = _gController.getLoadedArea();
+        RenderQueue queue = _gController.getRenderQueue();
+        for(int i = 0; i < queue.size(); i++){
+            if(queue.isDynamic(i) && (camera == null || camera.isNearView(area, queue.get(i)))){
+                collectSprite(dirty, (MovingObject) queue.get(i), alpha);
+            }
+        }
+
+        Iterator<DrawnSprite> it = drawn.values().iterator();
+        while(it.hasNext()){
+            DrawnSprite d = it.next();
+            if(d.pass != pass){     //removed or hidden
+                if(d.image != null){
+                    addRegion(dirty, new Rectangle(d.bounds));
+                }
+                it.remove();
+            }
+        }
+        for(Rectangle d : dirty){
+            d.translate(-originX, -originY);
+        }
+        return dirty;
+    }
+
+    /**
+     * Drops the cached static layer so it is rebuilt on the next frame; call after
+     * changing a background or static item in a way the renderer cannot see
+     * (e.g. drawing onto its image)
+     */
+    public void invalidateStaticLayer(){
+        synchronized (_gController) {
+            staticLayer = null;
+            layerArea = null;
+            fullRedraw = true;
+        }
+    }
+
+    //Reads the camera position and viewport for a frame
+    private void updateView(double alpha){
+        camera = _gController.getCamera();
+        if(camera == null){
+            originX = 0;
+            originY = 0;
+            return;
+        }
+        GameSegment area = _gController.getLoadedArea();
+        originX = camera.getX(area, alpha);
+        originY = camera.getY(area, alpha);
+        view.setBounds(originX, originY, camera.getViewWidth(), camera.getViewHeight());
+    }
+
+    //True if an item's image overlaps the viewport (always true without a camera)
+    private boolean inView(GameObject obj){
+        if(camera == null){
+            return true;
+        }
+        Image img = obj.getImage();
+        if(img == null){
+            return false;
+        }
+        int x = obj.getxPos(), y = obj.getyPos();
+        return x < view.x + view.width && x + img.getWidth(null) > view.x
+                && y < view.y + view.height && y + img.getHeight(null) > view.y;
+    }
+
+    //Draws a visible sprite if it touches the clip and records where it was drawn
+    private void drawSprite(Graphics g, MovingObject sprite, Shape clip, double alpha){
+        if(!sprite.isVisible()){
+            return;
+        }
+        Image img = sprite.getImage();
+        spriteBounds(sprite, img, alpha, current);
+        DrawnSprite d = drawn.get(sprite);
+        if(d == null){
+            d = new DrawnSprite();
+            drawn.put(sprite, d);
+        }
+        d.pass = pass;
+        seen++;
+        boolean oldInClip = d.image != null && (clip == null || clip.intersects(d.bounds));
+        if(clip != null && !clip.intersects(current) && !oldInClip){
+            return;     //the screen still shows it where it was last drawn
+        }
+        sprite.draw(g, current.x, current.y);
+
+        //parts outside the clip were not redrawn: leave them for the next frame
+        if(clip != null){
+            if(d.image != null && !clip.contains(d.bounds)){
+                pending.add(new Rectangle(d.bounds));
+            }
+            if(!clip.contains(current)){
+                pending.add(new Rectangle(current));
+            }
+        }
+        d.image = img;
+        d.bounds.setBounds(current);
+        d.layer = sprite.getLayer();
+        d.zIndex = sprite.getZIndex();
+    }
+
+    //Adds the regions of a sprite if it changed since it was last drawn
+    private void collectSprite(List<Rectangle> dirty, MovingObject sprite, double alpha){
+        if(!sprite.isVisible()){
+            return;
+        }
+        Image img = sprite.getImage();
+        spriteBounds(sprite, img, alpha, current);
+        DrawnSprite d = drawn.get(sprite);
+        if(d == null || d.image == null){
+            addRegion(dirty, new Rectangle(current));
+            return;
+        }
+        d.pass = pass;
+        if(d.image != img || !d.bounds.equals(current)
+                || d.layer != sprite.getLayer() || d.zIndex != sprite.getZIndex()){
+            if(d.bounds.intersects(current)){
+                addRegion(dirty, d.bounds.union(current));
+            } else {
+                addRegion(dirty, new Rectangle(d.bounds));
+                addRegion(dirty, new Rectangle(current));
+            }
+        }
+    }
+
+    //Number of leading queue items which never move, and so go in the static layer
+    private static int staticPrefix(RenderQueue queue){
+        int i = 0;
+        while(i < queue.size() && !queue.isDynamic(i)){
+            i++;
+        }
+        return i;
+    }
+
+    private static void addRegion(List<Rectangle> dirty, Rectangle r){
+        if(!r.isEmpty()){
+            dirty.add(r);
+        }
+    }
+
+    private static void spriteBounds(MovingObject sprite, Image img, double alpha, Rectangle out){
+        int w = (img == null) ? 0 : Math.max(0, img.getWidth(null));
+        int h = (img == null) ? 0 : Math.max(0, img.getHeight(null));
+        out.setBounds(sprite.getRenderX(alpha), sprite.getRenderY(alpha), w, h);
+    }
+
+    //True if the cached static layer matches the loaded area's static content
+    private boolean isStaticLayerCurrent(){
+        return isStaticLayerOf(_gController.getLoadedArea(), staticPrefix(_gController.getRenderQueue()));
+    }
+
+    //True if the cached static layer was built from the first prefix items of area's current static content
+    private boolean isStaticLayerOf(GameSegment area, int prefix){
+        return area == layerArea && area.getStaticVersion() == layerVersion
+                && area.getStaticDrawVersion() == layerDrawVersion && prefix == layerPrefix;
+    }
+
+    //Draws the cached static layer, rebuilding it if the static content changed
+    private void drawStaticLayer(Graphics g, RenderQueue queue, int prefix){
+        GameSegment area = _gController.getLoadedArea();
+        if(!isStaticLayerOf(area, prefix)){
+            buildStaticLayer(g, queue, prefix);
+            layerArea = area;
+            layerVersion = area.getStaticVersion();
+            layerDrawVersion = area.getStaticDrawVersion();
+            layerPrefix = prefix;
+        }
+        if(staticLayer == null){
+            return;
+        }
+        if(camera == null){
+            g.drawImage(staticLayer, layerX, layerY, null);
+            return;
+        }
+        //only the part of the layer inside the viewport
+        int x0 = Math.max(view.x, layerX), y0 = Math.max(view.y, layerY);
+        int x1 = Math.min(view.x + view.width, layerX + staticLayer.getWidth(null));
+        int y1 = Math.min(view.y + view.height, layerY + staticLayer.getHeight(null));
+        if(x0 < x1 && y0 < y1){
+            g.drawImage(staticLayer, x0, y0, x1, y1, x0 - layerX, y0 - layerY, x1 - layerX, y1 - layerY, null);
+        }
+    }
+
+    //Composites the first prefix items of the queue into a new image compatible with g
+    private void buildStaticLayer(Graphics g, RenderQueue queue, int prefix){
+        if(staticLayer != null){
+            staticLayer.flush();
+            staticLayer = null;
+        }
+
+        Rectangle area = null;
+        for(int i = 0; i < prefix; i++){
+            area = include(area, queue.get(i));
+        }
+        if(area == null){
+            return;     //nothing visible
+        }
+
+        GraphicsConfiguration config = (g instanceof Graphics2D) ? ((Graphics2D) g).getDeviceConfiguration() : null;
+        Image layer = (config != null)
+                ? config.createCompatibleImage(area.width, area.height, Transparency.TRANSLUCENT)
+                : new BufferedImage(area.width, area.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics lg = layer.getGraphics();
+        try {
+            lg.translate(-area.x, -area.y);
+            for(int i = 0; i < prefix; i++){
+                GameObject obj = queue.get(i);
+                if(obj.isVisible()){
+                    lg.drawImage(obj.getImage(), obj.getxPos(), obj.getyPos(), null);
+                }
+            }
+        } finally {
+            lg.dispose();
+        }
+        staticLayer = layer;
+        layerX = area.x;
+        layerY = area.y;
+        Log.send(Log.type.DEBUG, TAG, "Static layer built: " + area.width + "x" + area.height);
+    }
+
+    //Grows area to cover a visible object's image as drawn
+    private static Rectangle include(Rectangle area, GameObject obj){
+        Image img = obj.getImage();
+        if(!obj.isVisible() || img == null || img.getWidth(null) <= 0 || img.getHeight(null) <= 0){
+            return area;
+        }
+        Rectangle r = new Rectangle(obj.getxPos(), obj.getyPos(), img.getWidth(null), img.getHeight(null));
+        if(area == null){
+            return r;
+        }
+        area.add(r);
+        return area;
+    }
+
+    /** Image and bounds a sprite was last drawn with **/
+    private static class DrawnSprite {
+        /** Image drawn, or null if not drawn yet **/
+        Image image;
+        /** Bounds drawn at **/
+        final Rectangle bounds = new Rectangle();
+        /** Layer and z-index drawn with **/
+        int layer, zIndex;
+        /** Last render or collect pass which saw the sprite visible **/
+        int pass;
+    }
+}
@@ -1,11 +1,15 @@
 package com.tk.wightwhale.levels;
 
 //For loading from XML
+import com.tk.wightwhale.actors.AbstractGameObject;
+import com.tk.wightwhale.actors.AppearanceListener;
 import com.tk.wightwhale.actors.BackgroundGameObject;
 import com.tk.wightwhale.actors.GameObject;
 import com.tk.wightwhale.actors.MovingObject;
 import com.tk.wightwhale.actors.PlayerControlledObject;
+import com.tk.wightwhale.collision.StaticCollisionGrid;
 import com.tk.wightwhale.utils.Log;
+import com.tk.wightwhale.utils.SpriteAtlas;
 
 import javax.xml.bind.annotation.*;
 import java.util.HashMap;
@@ -17,7 +21,7 @@ import java.util.Map;
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlRootElement
-public class GameSegment {
+public class GameSegment implements AppearanceListener {
     /** Debug tag **/
     @XmlTransient
     private static final String TAG = "GameSegment";
@@ -44,6 +48,27 @@ public class GameSegment {
     private Map<String, GameObject> staticItems;
     @XmlElement
     private Map<String, BackgroundGameObject> backgroundItems;
+    /** Baked collision grid of background off-limits areas and static items **/
+    @XmlTransient
+    private StaticCollisionGrid staticGrid;
+    /** True if static or background content changed since staticGrid was baked **/
+    @XmlTransient
+    private boolean staticGridDirty = true;
+    /** Incremented each time staticGrid is re-baked **/
+    @XmlTransient
+    private int staticVersion = 0;
+    /** All items in draw order, built on first use **/
+    @XmlTransient
+    private RenderQueue renderQueue;
+    /** Incremented each time an item is registered or unregistered **/
+    @XmlTransient
+    private int itemsVersion = 0;
+    /** Incremented each time a background or static item is added, removed or changes how it is drawn **/
+    @XmlTransient
+    private int staticDrawVersion = 0;
+    /** Sprite images packed while the segment is loaded, or null **/
+    @XmlTransient
+    private SpriteAtlas spriteAtlas;
 
     public GameSegment(){
         id = DEFAULT_ID;
@@ -105,6 +130,8 @@ public class GameSegment {
             }
         } else {
             staticItems.put(obj.getId(), obj);
+            staticGridDirty = true;
+            itemAdded(obj, RenderQueue.STATIC);
             Log.send(Log.type.INFO, TAG, "Successfully registered " + obj.getId());
             result = true;
         }
@@ -131,6 +158,7 @@ public class GameSegment {
             }
         } else {
             movingItems.put(mObj.getId(), mObj);
+            itemAdded(mObj, RenderQueue.MOVING);
             Log.send(Log.type.INFO, TAG, "Successfully registered " + mObj.getId());
             result = true;
         }
@@ -157,6 +185,7 @@ public class GameSegment {
             }
         } else {
             playerControlledItems.put(pcObj.getId(), pcObj);
+            itemAdded(pcObj, RenderQueue.PLAYER);
             Log.send(Log.type.INFO, TAG, "Successfully registered " + pcObj.getId());
             result = true;
         }
@@ -183,12 +212,165 @@ public class GameSegment {
             }
         } else {
             backgroundItems.put(bObj.getId(), bObj);
+            staticGridDirty = true;
+            itemAdded(bObj, RenderQueue.BACKGROUND);
             Log.send(Log.type.INFO, TAG, "Successfully registered " + bObj.getId());
             result = true;
         }
         return result;
     }
 
+    /**
+     * Removes a static object from this level
+     * @param id    id of the GameObject
+     * @return      true if success, log + false if not registered
+     */
+    public boolean unregisterStatic(String id){
+        GameObject obj = staticItems.remove(id);
+        if(obj != null){
+            staticGridDirty = true;
+        }
+        return itemRemoved(obj, id);
+    }
+
+    /**
+     * Removes a moving object from this level
+     * @param id    id of the MovingObject
+     * @return      true if success, log + false if not registered
+     */
+    public boolean unregisterMoving(String id){
+        return itemRemoved(movingItems.remove(id), id);
+    }
+
+    /**
+     * Removes a Player-Controlled object from this level
+     * @param id    id of the PlayerControlledObject
+     * @return      true if success, log + false if not registered
+     */
+    public boolean unregisterPlayerControlled(String id){
+        return itemRemoved(playerControlledItems.remove(id), id);
+    }
+
+    /**
+     * Removes a Background object from this level
+     * @param id    id of the BackgroundGameObject
+     * @return      true if success, log + false if not registered
+     */
+    public boolean unregisterBackground(String id){
+        BackgroundGameObject obj = backgroundItems.remove(id);
+        if(obj != null){
+            staticGridDirty = true;
+        }
+        return itemRemoved(obj, id);
+    }
+
+    //Keeps the render queue in step with a registration
+    private void itemAdded(GameObject obj, int kind){
+        itemsVersion++;
+        if(kind == RenderQueue.BACKGROUND || kind == RenderQueue.STATIC){
+            obj.setAppearanceListener(this);
+            staticDrawVersion++;
+        }
+        if(renderQueue != null){
+            renderQueue.add(obj, kind);
+        }
+    }
+
+    //Keeps the render queue in step with an unregistration, logging if nothing was removed
+    private boolean itemRemoved(GameObject obj, String id){
+        if(obj == null){
+            Log.send(Log.type.WARNING, TAG, "Failed to unregister " + id + ", no such object registered.");
+            return false;
+        }
+        itemsVersion++;
+        if(obj.getAppearanceListener() == this){
+            obj.setAppearanceListener(null);
+            staticDrawVersion++;
+        }
+        if(renderQueue != null){
+            renderQueue.remove(obj);
+        }
+        Log.send(Log.type.INFO, TAG, "Successfully unregistered " + id);
+        return true;
+    }
+
+    /**
+     * Gets all items in draw order, re-sorted if any layer or z-index changed.
+     * Rebuilt from the item maps if they were changed other than by
+     * register and unregister. Reached through GraphicsController, whose lock
+     * guards every change to the queue.
+     * @return RenderQueue
+     */
+    public RenderQueue getRenderQueue() {
+        int count = backgroundItems.size() + staticItems.size() + movingItems.size() + playerControlledItems.size();
+        if(renderQueue == null || renderQueue.size() != count){
+            if(renderQueue == null){
+                renderQueue = new RenderQueue();
+            }
+            renderQueue.clear();
+            for(BackgroundGameObject obj : backgroundItems.values()){
+                obj.setAppearanceListener(this);
+                renderQueue.add(obj, RenderQueue.BACKGROUND);
+            }
+            for(GameObject obj : staticItems.values()){
+                obj.setAppearanceListener(this);
+                renderQueue.add(obj, RenderQueue.STATIC);
+            }
+            staticDrawVersion++;
+            for(MovingObject obj : movingItems.values()){
+                renderQueue.add(obj, RenderQueue.MOVING);
+            }
+            for(PlayerControlledObject obj : playerControlledItems.values()){
+                renderQueue.add(obj, RenderQueue.PLAYER);
+            }
+        }
+        renderQueue.update();
+        return renderQueue;
+    }
+
+    /**
+     * Gives a number which changes each time an item is registered or unregistered
+     * @return item set version
+     */
+    public int getItemsVersion() {
+        return itemsVersion;
+    }
+
+    /**
+     * Gives a number which changes each time a background or static item is
+     * registered, unregistered, or has its position, image, visibility, layer
+     * or z-index set
+     * @return static drawing version
+     */
+    public int getStaticDrawVersion() {
+        return staticDrawVersion;
+    }
+
+    /**
+     * Called by the segment's backgrounds and static items when they change how they are drawn
+     * @param obj the item which changed
+     */
+    @Override
+    public void appearanceChanged(AbstractGameObject obj) {
+        staticDrawVersion++;
+    }
+
+    /**
+     * Gets the atlas the segment's sprite images are packed into
+     * @return SpriteAtlas, or null if not built
+     */
+    public SpriteAtlas getSpriteAtlas() {
+        return spriteAtlas;
+    }
+
+    /**
+     * Sets the atlas the segment's sprite images are packed into
+     * @param spriteAtlas SpriteAtlas, or null
+     */
+    public void setSpriteAtlas(SpriteAtlas spriteAtlas) {
+        this.spriteAtlas = spriteAtlas;
+    }
+
     /**
      * Gets all moving items
      * @return Map of MovingObjects
@@ -221,20 +403,74 @@ public class GameSegment {
         return backgroundItems;
     }
 
+    /**
+     * Bakes the static collision grid from the current background and static items.
+     * Called when the segment's images are loaded, since loading scales
+     * sprites and off-limits areas.
+     */
+    public void bakeStaticGrid() {
+        if(staticGrid == null){
+            staticGrid = new StaticCollisionGrid();
+        }
+        staticGrid.bake(backgroundItems.values(), staticItems.values());
+        staticGridDirty = false;
+        staticVersion++;
+        Log.send(Log.type.DEBUG, TAG, "Static grid baked for " + id + ": " + staticGrid.size() + " entries.");
+    }
+
+    /**
+     * Gets the static collision grid, re-baking it first if static content changed
+     * @return StaticCollisionGrid
+     */
+    public StaticCollisionGrid getStaticGrid() {
+        if(staticGrid == null || staticGridDirty){
+            bakeStaticGrid();
+        }
+        return staticGrid;
+    }
+
+    /**
+     * Marks the static collision grid out of date; call after moving, resizing
+     * or regrouping a static or background item in place
+     */
+    public void invalidateStaticGrid() {
+        staticGridDirty = true;
+    }
+
+    /**
+     * Gives a number which changes each time the static collision grid is re-baked
+     * @return static content version
+     */
+    public int getStaticVersion() {
+        return staticVersion;
+    }
+
     public void setStaticItems(Map<String, GameObject> staticItems) {
         this.staticItems = staticItems;
+        staticGridDirty = true;
+        itemsReplaced();
     }
 
     public void setMovingItems(Map<String, MovingObject> movingItems){
         this.movingItems = movingItems;
+        itemsReplaced();
     }
 
     public void setPlayerControlledItems(Map<String, PlayerControlledObject> playerControlledItems) {
         this.playerControlledItems = playerControlledItems;
+        itemsReplaced();
     }
 
     public void setBackgroundItems(Map<String, BackgroundGameObject> backgroundItems) {
         this.backgroundItems = backgroundItems;
+        staticGridDirty = true;
+        itemsReplaced();
+    }
+
+    private void itemsReplaced(){
+        itemsVersion++;
+        staticDrawVersion++;
+        renderQueue = null;
     }
 
     public String getId() {
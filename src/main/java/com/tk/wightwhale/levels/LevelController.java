@@ -8,8 +8,8 @@ import java.io.File;
 import java.util.Arrays;
 
 /**
- * Singleton which manages the information associated
- * with each level and GameSegment for display
+ * Manages the information associated with each level and GameSegment
+ * for display. The active controller is the default world's singleton.
  */
 @XmlAccessorType(XmlAccessType.FIELD)
 @XmlRootElement(name = "LevelCollection")
@@ -65,22 +65,45 @@ public class LevelController {
      */
     public static LevelController createFromXml(String dir, int numLevels){  /* dir = "./Files/Levels" */
         LevelController lc = getActiveController();
-        lc.constructLevelList(numLevels);
+        lc.loadFromDirectory(dir, numLevels);
+        setActiveController(lc);
+        return lc;
+    }
+
+    /**
+     * Constructs a LevelController from the XML contents of the specified directory,
+     * without making it the active controller (e.g. for a World)
+     * @param dir   directory to use for levels
+     * @param numLevels number of levels to load
+     * @return  new LevelController
+     */
+    public static LevelController loadNewFromXml(String dir, int numLevels){
+        LevelController lc = new LevelController(numLevels);
+        lc.loadFromDirectory(dir, numLevels);
+        return lc;
+    }
+
+    /**
+     * Re-initializes the level list and loads every visible LevelMap XML
+     * document in the directory into it
+     * @param dir   directory to use for levels
+     * @param numLevels number of levels to load
+     */
+    public void loadFromDirectory(String dir, int numLevels){
+        constructLevelList(numLevels);
         File directory = new File(dir);
         File[] directoryListing = directory.listFiles();
         int i = 0;
         if(directoryListing != null){
             for (File child : directoryListing){
                 if(!child.isHidden()) {
-                    lc.loadFromXML(child, i);
+                    loadFromXML(child, i);
                     i++;
                     Log.send(Log.type.INFO, TAG, "Level loaded: " + child.getPath());
                 }
             }
         }
-        Arrays.sort(lc.levels);
-        setActiveController(lc);
-        return lc;
+        Arrays.sort(levels);
     }
 
     /**
@@ -1,5 +1,6 @@
 package com.tk.wightwhale.levels;
 
+import com.tk.wightwhale.collision.BroadphaseType;
 import com.tk.wightwhale.utils.Log;
 
 import javax.xml.bind.annotation.*;
@@ -37,6 +38,9 @@ public class LevelMap implements Comparable<LevelMap> {
     private int levelId;
     @XmlElement
     private String levelName;
+    /** Broadphase collision algorithm for this level **/
+    @XmlElement (name = "Broadphase")
+    private BroadphaseType broadphase;
 
     /**
      * Default constructor
@@ -51,6 +55,7 @@ public class LevelMap implements Comparable<LevelMap> {
         map = null;
         levelId = -1;
         levelName = "";
+        broadphase = BroadphaseType.SPATIAL_HASH;
     }
 
     /**
@@ -170,6 +175,23 @@ public class LevelMap implements Comparable<LevelMap> {
         this.levelName = levelName;
     }
 
+    /**
+     * Gets the broadphase collision algorithm used in this level
+     * @return BroadphaseType enum
+     */
+    public BroadphaseType getBroadphase() {
+        return broadphase;
+    }
+
+    /**
+     * Sets the broadphase collision algorithm used in this level
+     * (takes effect next time the loaded area is indexed)
+     * @param broadphase BroadphaseType enum
+     */
+    public void setBroadphase(BroadphaseType broadphase) {
+        this.broadphase = broadphase;
+    }
+
     @Override
     public int compareTo(LevelMap o) {
         int comparison = 0;
@@ -0,0 +1,199 @@
+package com.tk.wightwhale.levels;
+
+import com.tk.wightwhale.actors.GameObject;
+
+/**
+ * Items of a GameSegment in the order they are drawn: by layer, then kind
+ * (backgrounds, static items, moving items, player controlled items), then
+ * z-index, then id. The order is kept up to date as items are registered and
+ * unregistered, and re-sorted in place when a layer or z-index changes, so
+ * walking the queue each frame does not allocate.
+ */
+public class RenderQueue {
+
+    /** Kind of BackgroundGameObjects **/
+    public static final int BACKGROUND = 0;
+    /** Kind of static GameObjects **/
+    public static final int STATIC = 1;
+    /** Kind of MovingObjects **/
+    public static final int MOVING = 2;
+    /** Kind of PlayerControlledObjects **/
+    public static final int PLAYER = 3;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** Queued items in draw order **/
+    private GameObject[] items = new GameObject[INITIAL_CAPACITY];
+    /** Kind of each item **/
+    private int[] kinds = new int[INITIAL_CAPACITY];
+    /** Layer of each item when it was last sorted **/
+    private int[] layers = new int[INITIAL_CAPACITY];
+    /** Z-index of each item when it was last sorted **/
+    private int[] zIndices = new int[INITIAL_CAPACITY];
+    /** Number of queued items **/
+    private int size = 0;
+
+    /**
+     * Adds an item at its place in the draw order
+     * @param obj item to add
+     * @param kind BACKGROUND, STATIC, MOVING or PLAYER
+     */
+    public void add(GameObject obj, int kind){
+        if(size == items.length){
+            grow();
+        }
+        int layer = obj.getLayer();
+        int z = obj.getZIndex();
+        int i = size;
+        while(i > 0 && compare(layer, kind, z, obj, i - 1) < 0){
+            i--;
+        }
+        System.arraycopy(items, i, items, i + 1, size - i);
+        System.arraycopy(kinds, i, kinds, i + 1, size - i);
+        System.arraycopy(layers, i, layers, i + 1, size - i);
+        System.arraycopy(zIndices, i, zIndices, i + 1, size - i);
+        set(i, obj, kind, layer, z);
+        size++;
+    }
+
+    /**
+     * Removes an item
+     * @param obj item to remove
+     * @return true if it was queued
+     */
+    public boolean remove(GameObject obj){
+        for(int i = 0; i < size; i++){
+            if(items[i] == obj){
+                int tail = size - i - 1;
+                System.arraycopy(items, i + 1, items, i, tail);
+                System.arraycopy(kinds, i + 1, kinds, i, tail);
+                System.arraycopy(layers, i + 1, layers, i, tail);
+                System.arraycopy(zIndices, i + 1, zIndices, i, tail);
+                size--;
+                items[size] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all items
+     */
+    public void clear(){
+        for(int i = 0; i < size; i++){
+            items[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Re-sorts the queue if any item's layer or z-index changed since it was queued.
+     * Called before each frame; does nothing and allocates nothing if the order still holds.
+     */
+    public void update(){
+        boolean changed = false;
+        for(int i = 0; i < size; i++){
+            GameObject obj = items[i];
+            if(obj.getLayer() != layers[i] || obj.getZIndex() != zIndices[i]){
+                layers[i] = obj.getLayer();
+                zIndices[i] = obj.getZIndex();
+                changed = true;
+            }
+        }
+        if(!changed){
+            return;
+        }
+
+        //insertion sort: stable, in place, and quick for a nearly sorted queue
+        for(int i = 1; i < size; i++){
+            GameObject obj = items[i];
+            int kind = kinds[i], layer = layers[i], z = zIndices[i];
+            int j = i;
+            while(j > 0 && compare(layer, kind, z, obj, j - 1) < 0){
+                items[j] = items[j - 1];
+                kinds[j] = kinds[j - 1];
+                layers[j] = layers[j - 1];
+                zIndices[j] = zIndices[j - 1];
+                j--;
+            }
+            set(j, obj, kind, layer, z);
+        }
+    }
+
+    /**
+     * Number of queued items
+     * @return size
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Gets the item at a place in the draw order
+     * @param index 0 (drawn first) to size() - 1
+     * @return GameObject
+     */
+    public GameObject get(int index){
+        return items[index];
+    }
+
+    /**
+     * Gets the kind of the item at a place in the draw order
+     * @param index 0 (drawn first) to size() - 1
+     * @return BACKGROUND, STATIC, MOVING or PLAYER
+     */
+    public int getKind(int index){
+        return kinds[index];
+    }
+
+    /**
+     * Checks whether the item at a place in the draw order moves
+     * @param index 0 (drawn first) to size() - 1
+     * @return true for MOVING and PLAYER items
+     */
+    public boolean isDynamic(int index){
+        return kinds[index] >= MOVING;
+    }
+
+    //Orders an item against the queued item at index j
+    private int compare(int layer, int kind, int z, GameObject obj, int j){
+        if(layer != layers[j]){
+            return Integer.compare(layer, layers[j]);
+        }
+        if(kind != kinds[j]){
+            return Integer.compare(kind, kinds[j]);
+        }
+        if(z != zIndices[j]){
+            return Integer.compare(z, zIndices[j]);
+        }
+        String a = obj.getId(), b = items[j].getId();
+        if(a == null || b == null){
+            return (a == null) ? ((b == null) ? 0 : 1) : -1;
+        }
+        return a.compareTo(b);
+    }
+
+    private void set(int i, GameObject obj, int kind, int layer, int z){
+        items[i] = obj;
+        kinds[i] = kind;
+        layers[i] = layer;
+        zIndices[i] = z;
+    }
+
+    private void grow(){
+        int capacity = items.length * 2;
+        GameObject[] newItems = new GameObject[capacity];
+        System.arraycopy(items, 0, newItems, 0, size);
+        items = newItems;
+        kinds = copyOf(kinds, capacity);
+        layers = copyOf(layers, capacity);
+        zIndices = copyOf(zIndices, capacity);
+    }
+
+    private int[] copyOf(int[] a, int capacity){
+        int[] b = new int[capacity];
+        System.arraycopy(a, 0, b, 0, size);
+        return b;
+    }
+}
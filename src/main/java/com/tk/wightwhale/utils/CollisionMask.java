@@ -0,0 +1,186 @@
+package com.tk.wightwhale.utils;
+
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Packed 1-bit opacity mask of an image, used for pixel-perfect collision.
+ * Each row is stored as 64-pixel words (bit i of word w is pixel w * 64 + i),
+ * so two masks are compared 64 pixels at a time with a shifted AND.
+ * A pixel is opaque if its alpha is not 0.
+ */
+public class CollisionMask {
+
+    /** Debug tag **/
+    private static final String TAG = "CollisionMask";
+    /** Masks already built, by image **/
+    private static final Map<Image, CollisionMask> cache = new WeakHashMap<>();
+
+    /** Mask width in pixels **/
+    private final int width;
+    /** Mask height in pixels **/
+    private final int height;
+    /** Number of 64-bit words per row **/
+    private final int wordsPerRow;
+    /** Opacity bits, row by row **/
+    private final long[] bits;
+
+    /**
+     * Constructs an empty (fully transparent) mask
+     * @param width width in pixels
+     * @param height height in pixels
+     */
+    public CollisionMask(int width, int height){
+        this.width = Math.max(0, width);
+        this.height = Math.max(0, height);
+        wordsPerRow = (this.width + 63) >>> 6;
+        bits = new long[wordsPerRow * this.height];
+    }
+
+    /**
+     * Gets the mask for an image, building it on first use
+     * @param img Image to build from
+     * @return CollisionMask, or null if img is null or not loaded
+     */
+    public static CollisionMask forImage(Image img){
+        if(img == null){
+            return null;
+        }
+        synchronized (cache){
+            CollisionMask mask = cache.get(img);
+            if(mask == null){
+                mask = fromImage(img);
+                if(mask != null){
+                    cache.put(img, mask);
+                }
+            }
+            return mask;
+        }
+    }
+
+    /**
+     * Builds a mask from the alpha channel of an image (images with no
+     * alpha channel are fully opaque)
+     * @param img Image to build from
+     * @return CollisionMask, or null if the image has no size yet
+     */
+    public static CollisionMask fromImage(Image img){
+        int w = img.getWidth(null);
+        int h = img.getHeight(null);
+        if(w <= 0 || h <= 0){
+            Log.send(Log.type.WARNING, TAG, "Image not loaded, no mask built.");
+            return null;
+        }
+
+        BufferedImage bImg = ImageUtils.toBufferedImage(img);
+        CollisionMask mask = new CollisionMask(w, h);
+        int[] row = new int[w];
+        for(int y = 0; y < h; y++){
+            bImg.getRGB(0, y, w, 1, row, 0, w);
+            int base = y * mask.wordsPerRow;
+            for(int x = 0; x < w; x++){
+                if((row[x] >>> 24) != 0){
+                    mask.bits[base + (x >>> 6)] |= 1L << (x & 63);
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Tests whether any opaque pixel of this mask lies on an opaque pixel of another,
+     * looking only inside a clip rectangle. Returns on the first overlapping pixel.
+     * @param other the other mask
+     * @param offsetX X position of the other mask's origin, relative to this mask
+     * @param offsetY Y position of the other mask's origin, relative to this mask
+     * @param clipX left of the area to test, in this mask's coordinates
+     * @param clipY top of the area to test, in this mask's coordinates
+     * @param clipWidth width of the area to test
+     * @param clipHeight height of the area to test
+     * @return true if the masks overlap inside the clip
+     */
+    public boolean overlaps(CollisionMask other, int offsetX, int offsetY,
+                            int clipX, int clipY, int clipWidth, int clipHeight){
+        int x0 = Math.max(Math.max(0, offsetX), clipX);
+        int y0 = Math.max(Math.max(0, offsetY), clipY);
+        int x1 = Math.min(Math.min(width, offsetX + other.width), clipX + clipWidth);
+        int y1 = Math.min(Math.min(height, offsetY + other.height), clipY + clipHeight);
+        if(x0 >= x1 || y0 >= y1){
+            return false;
+        }
+
+        int firstWord = x0 >>> 6;
+        int lastWord = (x1 - 1) >>> 6;
+        for(int y = y0; y < y1; y++){
+            int base = y * wordsPerRow;
+            int otherBase = (y - offsetY) * other.wordsPerRow;
+            for(int w = firstWord; w <= lastWord; w++){
+                long mine = bits[base + w] & rangeMask(x0 - (w << 6), x1 - (w << 6));
+                if(mine != 0 && (mine & other.bitsAt(otherBase, (w << 6) - offsetX)) != 0){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tests whether any opaque pixel of this mask lies on an opaque pixel of another
+     * @param other the other mask
+     * @param offsetX X position of the other mask's origin, relative to this mask
+     * @param offsetY Y position of the other mask's origin, relative to this mask
+     * @return true if the masks overlap
+     */
+    public boolean overlaps(CollisionMask other, int offsetX, int offsetY){
+        return overlaps(other, offsetX, offsetY, 0, 0, width, height);
+    }
+
+    /**
+     * Gets one pixel
+     * @param x X position
+     * @param y Y position
+     * @return true if opaque, false if transparent or outside the mask
+     */
+    public boolean isOpaque(int x, int y){
+        if(x < 0 || y < 0 || x >= width || y >= height){
+            return false;
+        }
+        return (bits[y * wordsPerRow + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    public int getWidth(){
+        return width;
+    }
+
+    public int getHeight(){
+        return height;
+    }
+
+    //64 bits of a row starting at pixel x (may be unaligned or outside the row)
+    private long bitsAt(int rowBase, int x){
+        int word = Math.floorDiv(x, 64);
+        int shift = Math.floorMod(x, 64);
+        long out = wordAt(rowBase, word) >>> shift;
+        if(shift != 0){
+            out |= wordAt(rowBase, word + 1) << (64 - shift);
+        }
+        return out;
+    }
+
+    private long wordAt(int rowBase, int word){
+        if(word < 0 || word >= wordsPerRow){
+            return 0;
+        }
+        return bits[rowBase + word];
+    }
+
+    //Bits from..to-1 of a word set, clamped to 0..64
+    private static long rangeMask(int from, int to){
+        from = Math.max(from, 0);
+        to = Math.min(to, 64);
+        long high = (to == 64) ? -1L : (1L << to) - 1;
+        return high & (-1L << from);
+    }
+}
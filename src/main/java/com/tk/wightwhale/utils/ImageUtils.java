@@ -4,44 +4,206 @@ import com.tk.wightwhale.actors.GameObject;
 import com.tk.wightwhale.geometry.point2d_double;
 import com.tk.wightwhale.geometry.point2d_int;
 
+import javax.imageio.ImageIO;
 import java.awt.*;
-import java.awt.geom.AffineTransform;
-import java.awt.geom.Area;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
 
 public class ImageUtils {
 
+    /** Debug tag **/
+    private static final String TAG = "ImageUtils";
+    /** Loaded images by file path and size; soft so unused images can be reclaimed when memory runs low **/
+    private static final HashMap<String, CachedImage> imageCache = new HashMap<>();
+    /** Receives the cache's references once their images are reclaimed **/
+    private static final ReferenceQueue<BufferedImage> reclaimed = new ReferenceQueue<>();
+
+    /** Soft reference to a cached image, remembering its key so the entry can be dropped once reclaimed **/
+    private static class CachedImage extends SoftReference<BufferedImage> {
+        /** Key of the entry in imageCache **/
+        final String key;
+
+        CachedImage(String key, BufferedImage img){
+            super(img, reclaimed);
+            this.key = key;
+        }
+    }
+
+    /**
+     * Loads an image file at its own size as a translucent image compatible with
+     * the screen (see toCompatibleImage). Images are cached by file, so objects
+     * using the same file share one image; treat it as read-only.
+     * @param file image file
+     * @return loaded image
+     * @throws IOException if the file cannot be read or is not an image
+     */
+    public static BufferedImage loadImage(File file) throws IOException {
+        return loadImage(file, 0, 0);
+    }
+
+    /**
+     * Loads an image file scaled to a size, as a translucent image compatible with
+     * the screen. Images are cached by file and size, so objects using the same
+     * file at the same size share one image; treat it as read-only.
+     * @param file image file
+     * @param width target width, or 0 for the image's own size
+     * @param height target height, or 0 for the image's own size
+     * @return loaded image
+     * @throws IOException if the file cannot be read or is not an image
+     */
+    public static BufferedImage loadImage(File file, int width, int height) throws IOException {
+        if(width <= 0 || height <= 0){
+            width = 0;
+            height = 0;
+        }
+        String key = file.getAbsolutePath() + "@" + width + "x" + height;
+        synchronized (imageCache){
+            CachedImage ref = imageCache.get(key);
+            BufferedImage cached = (ref == null) ? null : ref.get();
+            if(cached != null){
+                return cached;
+            }
+            if(ref != null){
+                imageCache.remove(key);     //reclaimed
+            }
+        }
+
+        BufferedImage img;
+        if(width == 0){
+            BufferedImage raw = ImageIO.read(file);
+            if(raw == null){
+                throw new IOException("Unsupported image format: " + file.getName());
+            }
+            img = toCompatibleImage(raw);
+        } else {
+            BufferedImage natural = loadImage(file);
+            img = (natural.getWidth() == width && natural.getHeight() == height)
+                    ? natural : scale(natural, width, height);
+        }
+        synchronized (imageCache){
+            dropReclaimed();
+            imageCache.put(key, new CachedImage(key, img));
+        }
+        Log.send(Log.type.DEBUG, TAG, "Loaded " + key);
+        return img;
+    }
+
     /**
-     * Scales an image to the specified size
+     * Empties the cache of loaded images, e.g. after image files change on disk
+     */
+    public static void clearImageCache(){
+        synchronized (imageCache){
+            imageCache.clear();
+        }
+    }
+
+    //Removes the entries whose images were reclaimed; called with imageCache locked
+    private static void dropReclaimed(){
+        Reference<? extends BufferedImage> ref;
+        while((ref = reclaimed.poll()) != null){
+            CachedImage cleared = (CachedImage) ref;
+            if(imageCache.get(cleared.key) == cleared){     //not already replaced by a reload
+                imageCache.remove(cleared.key);
+            }
+        }
+    }
+
+    /**
+     * Scales an image to the specified size, keeping its alpha channel.
+     * Large reductions are done in steps of at most half, so filtering samples
+     * every source pixel instead of skipping rows and columns; enlargements
+     * keep hard pixel edges.
      * @param image Image to scale
      * @param width target width
      * @param height target height
-     * @return Image object at appropriate scale
+     * @return translucent image compatible with the screen, at the given size
      */
-    public static Image scale(Image image, int width, int height){
-        BufferedImage src = toBufferedImage(image);
-        BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        Graphics2D gTransform = out.createGraphics();
-        AffineTransform at = AffineTransform.getScaleInstance(
-                (double)width/image.getWidth(null),
-                (double)height/image.getHeight(null)
-        );
+    public static BufferedImage scale(Image image, int width, int height){
+        BufferedImage current = toBufferedImage(image);
+        int w = current.getWidth(), h = current.getHeight();
+        while(w >= width * 2 || h >= height * 2){
+            int nextW = Math.max(width, w / 2);
+            int nextH = Math.max(height, h / 2);
+            current = resample(current, nextW, nextH, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            w = nextW;
+            h = nextH;
+        }
+        if(w != width || h != height){
+            Object interpolation = (width > w || height > h)
+                    ? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR
+                    : RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+            current = resample(current, width, height, interpolation);
+        }
+        return toCompatibleImage(current);
+    }
 
-        gTransform.drawRenderedImage(src, at);
+    //Draws an image at a new size into a new ARGB image
+    private static BufferedImage resample(BufferedImage src, int width, int height, Object interpolation){
+        BufferedImage out = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, interpolation);
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(src, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    /**
+     * Converts an image to a translucent image in the screen's own pixel format,
+     * which Java2D can cache in video memory and draw without converting each
+     * pixel. Without a display, images are converted to TYPE_INT_ARGB.
+     * @param img Image to convert
+     * @return img itself if already compatible, or a converted copy
+     */
+    public static BufferedImage toCompatibleImage(Image img){
+        int w = img.getWidth(null), h = img.getHeight(null);
+        BufferedImage out;
+        if(GraphicsEnvironment.isHeadless()){
+            if(img instanceof BufferedImage && ((BufferedImage) img).getType() == BufferedImage.TYPE_INT_ARGB){
+                return (BufferedImage) img;
+            }
+            out = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        } else {
+            GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration();
+            if(img instanceof BufferedImage
+                    && ((BufferedImage) img).getColorModel().equals(config.getColorModel(Transparency.TRANSLUCENT))){
+                return (BufferedImage) img;
+            }
+            out = config.createCompatibleImage(w, h, Transparency.TRANSLUCENT);
+        }
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(img, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
         return out;
     }
 
     /**
      * Turns an Image object to a BufferedImage object
      * @param img Image object as input
-     * @return BufferedImage version of img
+     * @return BufferedImage version of img (img itself if already a BufferedImage)
      */
     public static BufferedImage toBufferedImage(Image img){
         BufferedImage bImage;
         if(!(img instanceof BufferedImage)) {
             bImage = new BufferedImage(
-                    img.getWidth(null), img.getHeight(null), BufferedImage.TYPE_INT_RGB);
+                    img.getWidth(null), img.getHeight(null), BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = bImage.createGraphics();
+            g.drawImage(img, 0, 0, null);
+            g.dispose();
         } else {
             bImage = (BufferedImage) img;
         }
@@ -95,37 +257,26 @@ public class ImageUtils {
 
     private static final int threshold = 255;
 
+    /**
+     * Pixel-perfect collision test between two objects, using their cached opacity masks
+     * @param object1 first GameObject
+     * @param object2 second GameObject
+     * @return true if an opaque pixel of each object overlaps within both bounds
+     */
     public static boolean imageCollision(GameObject object1, GameObject object2) {
-        boolean collision = false;
-
-        BufferedImage bufImg1 = toBufferedImage(object1.getImage());
-        BufferedImage bufImg2 = toBufferedImage(object2.getImage());
-
-        Area a1 = new Area(object1.getBounds());
-        Area a2 = new Area(object2.getBounds());
-        a1.intersect(a2);
-
-        Rectangle r = a1.getBounds();
-
-        try {
-            bufImg1 = bufImg1.getSubimage(r.x - object1.position.x, r.y - object1.position.y, r.width, r.height);
-            bufImg2 = bufImg2.getSubimage(r.x - object2.position.x, r.y - object2.position.y, r.width, r.height);
-
-            if (bufImg1.getWidth() == bufImg2.getWidth() && bufImg1.getHeight() == bufImg2.getHeight()) {
-                for (int x = 0; x < bufImg1.getWidth(); x++) {
-                    for (int y = 0; y < bufImg1.getHeight(); y++) {
-                        if (bufImg1.getRGB(x, y) != 0 && bufImg2.getRGB(x, y) != 0) {
-                            collision = true;
-                        }
-                    }
-                }
-
-            }
-        } catch (java.awt.image.RasterFormatException e){
-            Log.send(Log.type.ERROR, "ImageUtils", "Collision calculation failed due to: " + e.getMessage());
+        CollisionMask mask1 = object1.getCollisionMask();
+        CollisionMask mask2 = object2.getCollisionMask();
+        if(mask1 == null || mask2 == null){
+            return false;
         }
 
-        return collision;
+        Rectangle r = object1.getBounds().intersection(object2.getBounds());
+        if(r.isEmpty()){
+            return false;
+        }
+        return mask1.overlaps(mask2,
+                object2.position.x - object1.position.x, object2.position.y - object1.position.y,
+                r.x - object1.position.x, r.y - object1.position.y, r.width, r.height);
     }
 
     public static point2d_double scaleVector(point2d_int target, point2d_int source) {
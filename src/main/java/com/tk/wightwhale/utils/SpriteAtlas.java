@@ -0,0 +1,245 @@
+package com.tk.wightwhale.utils;
+
+import com.tk.wightwhale.actors.GameObject;
+
+import java.awt.Graphics;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Sprite images of a GameSegment packed into a few large compatible images
+ * (pages), so sprites draw as sub-regions of shared textures rather than
+ * from hundreds of small separate images. Objects using the same image file
+ * at the same size share one region.
+ * Built by GraphicsController.loadLevelImages(); objects registered later,
+ * or whose image changes, draw from their own image.
+ */
+public class SpriteAtlas {
+
+    /** Debug tag **/
+    private static final String TAG = "SpriteAtlas";
+    /** Maximum page width and height in pixels **/
+    public static final int PAGE_SIZE = 1024;
+    /** Images wider or taller than this are left out of the atlas **/
+    public static final int MAX_SPRITE_SIZE = 256;
+    /** Transparent gap between regions, so filtered drawing does not bleed between sprites **/
+    private static final int PADDING = 1;
+
+    /** Packing order: tallest first, then widest, then by file name for a stable layout **/
+    private static final Comparator<Slot> PACK_ORDER = (a, b) -> {
+        if(a.height != b.height){
+            return Integer.compare(b.height, a.height);
+        }
+        if(a.width != b.width){
+            return Integer.compare(b.width, a.width);
+        }
+        return a.key.compareTo(b.key);
+    };
+
+    /** Page images **/
+    private final List<Image> pages = new ArrayList<>();
+    /** Number of distinct regions packed **/
+    private int regionCount;
+
+    private SpriteAtlas(){
+    }
+
+    /**
+     * Packs the images of some objects into an atlas and gives each packed
+     * object its region (see GameObject.getAtlasRegion)
+     * @param objects objects with loaded images
+     * @param config configuration to create compatible pages for, or null for plain ARGB images
+     * @return SpriteAtlas
+     */
+    public static SpriteAtlas build(Collection<? extends GameObject> objects, GraphicsConfiguration config){
+        SpriteAtlas atlas = new SpriteAtlas();
+
+        //one slot per distinct image, shared by objects with the same file and size
+        IdentityHashMap<Image, Slot> byImage = new IdentityHashMap<>();
+        HashMap<String, Slot> byFile = new HashMap<>();
+        ArrayList<Slot> slots = new ArrayList<>();
+        for(GameObject obj : objects){
+            Image img = obj.getImage();
+            if(img == null){
+                continue;
+            }
+            int w = img.getWidth(null), h = img.getHeight(null);
+            if(w <= 0 || h <= 0 || w > MAX_SPRITE_SIZE || h > MAX_SPRITE_SIZE){
+                continue;
+            }
+            Slot slot = byImage.get(img);
+            String key = obj.getImgFilename() + "@" + w + "x" + h;
+            if(slot == null && obj.getImgFilename() != null){
+                slot = byFile.get(key);
+            }
+            if(slot == null){
+                slot = new Slot(img, w, h, key);
+                slots.add(slot);
+                if(obj.getImgFilename() != null){
+                    byFile.put(key, slot);
+                }
+            }
+            byImage.put(img, slot);
+            slot.users.add(obj);
+        }
+        if(slots.isEmpty()){
+            return atlas;
+        }
+        slots.sort(PACK_ORDER);
+
+        //shelf packing: left to right in rows as tall as their first (tallest) image
+        ArrayList<int[]> pageSizes = new ArrayList<>();
+        int page = 0, x = 0, y = 0, shelfHeight = 0, pageWidth = 0;
+        for(Slot slot : slots){
+            if(x + slot.width > PAGE_SIZE){     //next shelf
+                y += shelfHeight + PADDING;
+                x = 0;
+                shelfHeight = 0;
+            }
+            if(y + slot.height > PAGE_SIZE){    //next page
+                pageSizes.add(new int[]{pageWidth, y});
+                page++;
+                x = 0; y = 0; shelfHeight = 0; pageWidth = 0;
+            }
+            slot.page = page;
+            slot.x = x;
+            slot.y = y;
+            x += slot.width + PADDING;
+            shelfHeight = Math.max(shelfHeight, slot.height);
+            pageWidth = Math.max(pageWidth, x - PADDING);
+        }
+        pageSizes.add(new int[]{pageWidth, y + shelfHeight});
+
+        //pages are only as large as their contents
+        Graphics[] graphics = new Graphics[pageSizes.size()];
+        for(int i = 0; i < pageSizes.size(); i++){
+            int w = pageSizes.get(i)[0], h = pageSizes.get(i)[1];
+            Image img = (config != null)
+                    ? config.createCompatibleImage(w, h, Transparency.TRANSLUCENT)
+                    : new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+            atlas.pages.add(img);
+            graphics[i] = img.getGraphics();
+        }
+        try {
+            for(Slot slot : slots){
+                graphics[slot.page].drawImage(slot.image, slot.x, slot.y, null);
+                Region region = new Region(atlas.pages.get(slot.page), slot.x, slot.y, slot.width, slot.height);
+                for(GameObject obj : slot.users){
+                    obj.setAtlasRegion(region);
+                }
+            }
+        } finally {
+            for(Graphics g : graphics){
+                g.dispose();
+            }
+        }
+        atlas.regionCount = slots.size();
+        Log.send(Log.type.DEBUG, TAG, "Packed " + slots.size() + " images into " + atlas.pages.size() + " page(s).");
+        return atlas;
+    }
+
+    /**
+     * Releases the page images; regions already handed out keep drawing
+     * until their objects' images change
+     */
+    public void flush(){
+        for(Image page : pages){
+            page.flush();
+        }
+    }
+
+    /**
+     * Number of page images
+     * @return page count
+     */
+    public int getPageCount(){
+        return pages.size();
+    }
+
+    /**
+     * Gets a page image
+     * @param index 0 to getPageCount() - 1
+     * @return Image
+     */
+    public Image getPage(int index){
+        return pages.get(index);
+    }
+
+    /**
+     * Number of distinct images packed
+     * @return region count
+     */
+    public int getRegionCount(){
+        return regionCount;
+    }
+
+    /**
+     * Area of an atlas page holding one sprite image
+     */
+    public static final class Region {
+        private final Image page;
+        private final int x, y, width, height;
+
+        private Region(Image page, int x, int y, int width, int height){
+            this.page = page;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        /**
+         * Draws the sprite
+         * @param g Graphics to draw on
+         * @param dx left edge to draw at
+         * @param dy top edge to draw at
+         */
+        public void draw(Graphics g, int dx, int dy){
+            g.drawImage(page, dx, dy, dx + width, dy + height, x, y, x + width, y + height, null);
+        }
+
+        public Image getPage(){
+            return page;
+        }
+
+        public int getX(){
+            return x;
+        }
+
+        public int getY(){
+            return y;
+        }
+
+        public int getWidth(){
+            return width;
+        }
+
+        public int getHeight(){
+            return height;
+        }
+    }
+
+    /** A distinct image being packed and the objects which use it **/
+    private static class Slot {
+        final Image image;
+        final int width, height;
+        final String key;
+        final ArrayList<GameObject> users = new ArrayList<>();
+        int page, x, y;
+
+        Slot(Image image, int width, int height, String key){
+            this.image = image;
+            this.width = width;
+            this.height = height;
+            this.key = key;
+        }
+    }
+}